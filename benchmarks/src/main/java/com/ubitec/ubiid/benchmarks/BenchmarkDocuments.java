@@ -0,0 +1,104 @@
+package com.ubitec.ubiid.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Inputs for the benchmarks, made by CorpusGenerator from a fixed seed so every run measures the
+ * same documents. The .doc variants are the same documents saved by LibreOffice, so generating them
+ * needs {@code libreoffice.soffice}.
+ */
+final class BenchmarkDocuments {
+
+  private static final long SEED = 42;
+
+  private static final MethodHandle CREATE_SPEC =
+      UnnamedPackage.staticMethod("CorpusSpec", "create", UnnamedPackage.type("CorpusSpec"));
+
+  private static final MethodHandle SEED_SPEC =
+      UnnamedPackage.virtualMethod(
+          "CorpusSpec", "seed", UnnamedPackage.type("CorpusSpec"), long.class);
+
+  private static final MethodHandle PARAGRAPHS =
+      UnnamedPackage.virtualMethod(
+          "CorpusSpec", "paragraphs", UnnamedPackage.type("CorpusSpec"), int.class);
+
+  private static final MethodHandle TABLES =
+      UnnamedPackage.virtualMethod(
+          "CorpusSpec",
+          "tables",
+          UnnamedPackage.type("CorpusSpec"),
+          int.class,
+          int.class,
+          int.class);
+
+  private static final MethodHandle CHARTS =
+      UnnamedPackage.virtualMethod(
+          "CorpusSpec", "charts", UnnamedPackage.type("CorpusSpec"), int.class, int.class);
+
+  private static final MethodHandle WRITE_DOCX =
+      UnnamedPackage.staticMethod(
+          "CorpusGenerator",
+          "writeDocx",
+          void.class,
+          UnnamedPackage.type("CorpusSpec"),
+          OutputStream.class);
+
+  private static final MethodHandle WRITE_DOC =
+      UnnamedPackage.staticMethod(
+          "CorpusGenerator", "writeDoc", void.class, UnnamedPackage.type("CorpusSpec"), Path.class);
+
+  private BenchmarkDocuments() {}
+
+  /** Document sizes: paragraphs and tables */
+  enum Size {
+    SMALL(20, 1),
+    MEDIUM(1_000, 20),
+    HUGE(20_000, 200);
+
+    final int paragraphs;
+    final int tables;
+
+    Size(int paragraphs, int tables) {
+      this.paragraphs = paragraphs;
+      this.tables = tables;
+    }
+  }
+
+  enum Format {
+    DOCX,
+    DOC
+  }
+
+  /** Paragraphs of text with a 5x4 table after every few of them */
+  static byte[] textDocument(Size size, Format format) throws Throwable {
+    Object spec = PARAGRAPHS.invoke(CREATE_SPEC.invoke(), size.paragraphs);
+    return write(TABLES.invoke(spec, size.tables, 5, 4), format);
+  }
+
+  /** A DOCX holding one bar chart with a single series of the given number of points */
+  static byte[] chartDocument(int points) throws Throwable {
+    Object spec = PARAGRAPHS.invoke(CREATE_SPEC.invoke(), 1);
+    return write(CHARTS.invoke(spec, 1, points), Format.DOCX);
+  }
+
+  private static byte[] write(Object spec, Format format) throws Throwable {
+    spec = SEED_SPEC.invoke(spec, SEED);
+    if (format == Format.DOCX) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      WRITE_DOCX.invoke(spec, (OutputStream) out);
+      return out.toByteArray();
+    }
+
+    Path doc = Files.createTempFile("benchmark", ".doc");
+    try {
+      WRITE_DOC.invoke(spec, doc);
+      return Files.readAllBytes(doc);
+    } finally {
+      Files.delete(doc);
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.ubitec.ubiid.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building chart datasets from extracted series: the boxed DefaultCategoryDataset that chart
+ * rendering used to fill one addValue at a time, against ArrayCategoryDataset. The scan variants
+ * also read every value back by index, as the category renderers do. Run with {@code -prof gc} to
+ * compare allocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChartDatasetBenchmark {
+
+  private static final MethodHandle NEW_SERIES =
+      UnnamedPackage.constructor("ChartData$Series", String.class, String[].class, double[].class);
+
+  private static final MethodHandle ARRAY_DATASET =
+      UnnamedPackage.staticMethod(
+              "ArrayCategoryDataset", "of", UnnamedPackage.type("ArrayCategoryDataset"), List.class)
+          .asType(MethodType.methodType(CategoryDataset.class, List.class));
+
+  @Param({"100", "1000", "10000"})
+  private int points;
+
+  @Param({"3"})
+  private int seriesCount;
+
+  private String[] names;
+  private String[] categories;
+  private double[][] values;
+
+  // ChartData.Series instances, typed as Object since the class is in the unnamed package
+  private List<Object> series;
+
+  @Setup
+  public void setUp() throws Throwable {
+    names = new String[seriesCount];
+    categories = new String[points];
+    values = new double[seriesCount][points];
+    for (int i = 0; i < points; i++) {
+      categories[i] = "Category " + (i + 1);
+    }
+
+    series = new ArrayList<>();
+    for (int s = 0; s < seriesCount; s++) {
+      names[s] = "Series " + (s + 1);
+      for (int i = 0; i < points; i++) {
+        values[s][i] = (s + 1) * Math.sin(i / 50.0) * 100;
+      }
+      series.add(NEW_SERIES.invoke(names[s], categories, values[s]));
+    }
+  }
+
+  @Benchmark
+  public CategoryDataset defaultDataset() {
+    return createDefaultDataset();
+  }
+
+  @Benchmark
+  public CategoryDataset arrayDataset() throws Throwable {
+    return (CategoryDataset) ARRAY_DATASET.invokeExact(series);
+  }
+
+  @Benchmark
+  public double defaultDatasetScan() {
+    return scan(createDefaultDataset());
+  }
+
+  @Benchmark
+  public double arrayDatasetScan() throws Throwable {
+    return scan((CategoryDataset) ARRAY_DATASET.invokeExact(series));
+  }
+
+  /** The dataset as chart rendering built it before ArrayCategoryDataset */
+  private DefaultCategoryDataset createDefaultDataset() {
+    DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+    for (int s = 0; s < seriesCount; s++) {
+      for (int i = 0; i < points; i++) {
+        dataset.addValue(values[s][i], names[s], categories[i]);
+      }
+    }
+    return dataset;
+  }
+
+  private static double scan(CategoryDataset dataset) {
+    double sum = 0;
+    for (int row = 0; row < dataset.getRowCount(); row++) {
+      for (int column = 0; column < dataset.getColumnCount(); column++) {
+        Number value = dataset.getValue(row, column);
+        if (value != null) {
+          sum += value.doubleValue();
+        }
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,65 @@
+package com.ubitec.ubiid.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+import org.apache.poi.xwpf.usermodel.XWPFChart;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * XWPFChartToImageConverter reading a chart part and rendering it to an 800x600 image, for charts
+ * of a small, medium and huge number of points. The render cache is switched off in the fork, since
+ * it would serve every call after the first.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dchart.cache.maxMb=0")
+@State(Scope.Benchmark)
+public class ChartRenderBenchmark {
+
+  private static final MethodHandle CONVERT_CHART =
+      UnnamedPackage.staticMethod(
+          "XWPFChartToImageConverter",
+          "convertChartToImage",
+          BufferedImage.class,
+          XWPFChart.class,
+          int.class,
+          int.class);
+
+  @Param({"10", "1000", "10000"})
+  private int points;
+
+  private XWPFDocument document;
+  private XWPFChart chart;
+
+  @Setup
+  public void setUp() throws Throwable {
+    document = new XWPFDocument(new ByteArrayInputStream(BenchmarkDocuments.chartDocument(points)));
+    chart = document.getCharts().get(0);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    document.close();
+  }
+
+  @Benchmark
+  public BufferedImage convertChartToImage() throws Throwable {
+    return (BufferedImage) CONVERT_CHART.invokeExact(chart, 800, 600);
+  }
+}
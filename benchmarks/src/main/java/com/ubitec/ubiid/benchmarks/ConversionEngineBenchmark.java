@@ -0,0 +1,57 @@
+package com.ubitec.ubiid.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Every in-process engine converting the same small, medium and huge DOCX to a discarded PDF. The
+ * .doc variants and LibreOfficeConverter, which need an office install, are measured by {@link
+ * OfficeConversionBenchmark}. Run with {@code -prof gc} for allocation per conversion.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConversionEngineBenchmark {
+
+  @Param({
+    "UniversalDocToPdfConverter",
+    "SmartDocConverter",
+    "AdvancedDocToPdfConverter",
+    "PoiITextDocxToPdfConverter",
+    "DocxToPdfConverter",
+    "AsposeDocxToPdfConverter"
+  })
+  private String engine;
+
+  @Param({"SMALL", "MEDIUM", "HUGE"})
+  private String size;
+
+  private EngineConversion conversion;
+
+  @Setup
+  public void setUp() throws Throwable {
+    conversion =
+        new EngineConversion(
+            engine,
+            BenchmarkDocuments.textDocument(
+                BenchmarkDocuments.Size.valueOf(size), BenchmarkDocuments.Format.DOCX));
+  }
+
+  @Benchmark
+  public void convert() throws Throwable {
+    conversion.convert();
+  }
+}
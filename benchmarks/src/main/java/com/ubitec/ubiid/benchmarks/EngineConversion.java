@@ -0,0 +1,49 @@
+package com.ubitec.ubiid.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
+/** One engine converting one document to a discarded PDF, with the engine's default options */
+final class EngineConversion {
+
+  private static final MethodHandle CREATE_OPTIONS =
+      UnnamedPackage.staticMethod(
+              "ConversionOptions", "create", UnnamedPackage.type("ConversionOptions"))
+          .asType(MethodType.methodType(Object.class));
+
+  private static final MethodHandle CONVERT =
+      UnnamedPackage.virtualMethod(
+              "DocumentConverter",
+              "convert",
+              void.class,
+              InputStream.class,
+              OutputStream.class,
+              UnnamedPackage.type("ConversionOptions"))
+          .asType(
+              MethodType.methodType(
+                  void.class, Object.class, InputStream.class, OutputStream.class, Object.class));
+
+  private final byte[] document;
+  private final Object converter;
+  private final Object options;
+
+  EngineConversion(String engine, byte[] document) throws Throwable {
+    this.document = document;
+    converter =
+        UnnamedPackage.constructor(engine)
+            .asType(MethodType.methodType(Object.class))
+            .invokeExact();
+    options = (Object) CREATE_OPTIONS.invokeExact();
+  }
+
+  void convert() throws Throwable {
+    CONVERT.invokeExact(
+        converter,
+        (InputStream) new ByteArrayInputStream(document),
+        OutputStream.nullOutputStream(),
+        options);
+  }
+}
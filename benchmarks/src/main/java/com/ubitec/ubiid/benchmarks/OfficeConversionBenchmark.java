@@ -0,0 +1,61 @@
+package com.ubitec.ubiid.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The benchmarks that need {@code libreoffice.soffice}: LibreOfficeConverter, and the documents of
+ * {@link ConversionEngineBenchmark} saved as .doc by LibreOffice, converted by every engine that
+ * reads .doc. Add {@code -p format=DOCX} for the office engine on the DOCX originals.
+ * PublishResults leaves this benchmark out unless it is named. Run with {@code -prof gc} for
+ * allocation per conversion.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OfficeConversionBenchmark {
+
+  @Param({
+    "UniversalDocToPdfConverter",
+    "SmartDocConverter",
+    "AdvancedDocToPdfConverter",
+    "AsposeDocxToPdfConverter",
+    "LibreOfficeConverter"
+  })
+  private String engine;
+
+  @Param({"SMALL", "MEDIUM", "HUGE"})
+  private String size;
+
+  @Param({"DOC"})
+  private String format;
+
+  private EngineConversion conversion;
+
+  @Setup
+  public void setUp() throws Throwable {
+    conversion =
+        new EngineConversion(
+            engine,
+            BenchmarkDocuments.textDocument(
+                BenchmarkDocuments.Size.valueOf(size), BenchmarkDocuments.Format.valueOf(format)));
+  }
+
+  @Benchmark
+  public void convert() throws Throwable {
+    conversion.convert();
+  }
+}
@@ -0,0 +1,48 @@
+package com.ubitec.ubiid.benchmarks;
+
+import java.io.File;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler and writes the results as JMH JSON, one file per
+ * release, so runs can be compared for regressions. Without a regex it runs every benchmark but
+ * {@link OfficeConversionBenchmark}, so it works on machines without LibreOffice.
+ *
+ * <p>Usage: {@code PublishResults <results.json> [benchmark regex]}
+ */
+public class PublishResults {
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 1) {
+      System.err.println("Usage: PublishResults <results.json> [benchmark regex]");
+      System.exit(2);
+    }
+
+    File results = new File(args[0]);
+    if (results.getParentFile() != null) {
+      results.getParentFile().mkdirs();
+    }
+
+    OptionsBuilder builder = new OptionsBuilder();
+    if (args.length > 1) {
+      builder.include(args[1]);
+    } else {
+      builder
+          .include(PublishResults.class.getPackageName() + ".*")
+          .exclude(OfficeConversionBenchmark.class.getName());
+    }
+    Options options =
+        builder
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(results.getPath())
+            .build();
+    new Runner(options).run();
+
+    System.out.println("Results written to " + results);
+  }
+}
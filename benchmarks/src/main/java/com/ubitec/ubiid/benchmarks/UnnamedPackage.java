@@ -0,0 +1,53 @@
+package com.ubitec.ubiid.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Handles onto the converter classes. They live in the unnamed package, which cannot be imported
+ * from a named one, and JMH does not accept benchmarks in the unnamed package.
+ */
+final class UnnamedPackage {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+  private UnnamedPackage() {}
+
+  static Class<?> type(String className) {
+    try {
+      return Class.forName(className);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Converter class not on the classpath: " + className, e);
+    }
+  }
+
+  static MethodHandle constructor(String className, Class<?>... parameterTypes) {
+    try {
+      return LOOKUP.findConstructor(
+          type(className), MethodType.methodType(void.class, parameterTypes));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static MethodHandle staticMethod(
+      String className, String name, Class<?> returnType, Class<?>... parameterTypes) {
+    try {
+      return LOOKUP.findStatic(
+          type(className), name, MethodType.methodType(returnType, parameterTypes));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static MethodHandle virtualMethod(
+      String className, String name, Class<?> returnType, Class<?>... parameterTypes) {
+    try {
+      return LOOKUP.findVirtual(
+          type(className), name, MethodType.methodType(returnType, parameterTypes));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
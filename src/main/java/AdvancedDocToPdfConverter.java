@@ -4,25 +4,18 @@ import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
 import java.io.*;
 import java.util.List;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.poi.hwpf.HWPFDocument;
 import org.apache.poi.hwpf.usermodel.Picture;
 import org.apache.poi.xwpf.usermodel.*;
 
-public class AdvancedDocToPdfConverter {
+public class AdvancedDocToPdfConverter implements DocumentConverter {
 
   public static void convertToPdf(String inputPath, String outputPath) {
-    try {
-      Document pdfDoc = new Document();
-      PdfWriter.getInstance(pdfDoc, new FileOutputStream(outputPath));
-      pdfDoc.open();
-
-      if (inputPath.toLowerCase().endsWith(".docx")) {
-        convertDocxToPdf(inputPath, pdfDoc);
-      } else if (inputPath.toLowerCase().endsWith(".doc")) {
-        convertDocToPdf(inputPath, pdfDoc);
-      }
-
-      pdfDoc.close();
+    try (OutputStream out = new FileOutputStream(outputPath)) {
+      new AdvancedDocToPdfConverter()
+          .convert(new File(inputPath), out, ConversionOptions.forFile(inputPath));
       System.out.println("Conversion completed with images!");
 
     } catch (Exception e) {
@@ -30,59 +23,110 @@ public class AdvancedDocToPdfConverter {
     }
   }
 
-  private static void convertDocxToPdf(String inputPath, Document pdfDoc) throws Exception {
-    FileInputStream fis = new FileInputStream(inputPath);
-    XWPFDocument document = new XWPFDocument(fis);
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    InputStream input = new BufferedInputStream(CloseShieldInputStream.wrap(in));
+    DocumentFormat format = DocumentFormat.resolve(input, options);
 
-    // Process paragraphs
-    for (XWPFParagraph paragraph : document.getParagraphs()) {
-      String text = paragraph.getText();
-      if (text != null && !text.trim().isEmpty()) {
-        pdfDoc.add(new Paragraph(text));
+    try (ConversionTrace trace = ConversionTrace.begin(engineId())) {
+      if (format == DocumentFormat.DOCX) {
+        try (XWPFDocument document = DocumentLoader.openDocx(input, options)) {
+          convertDocxToPdf(document, out);
+        }
+      } else if (format == DocumentFormat.DOC) {
+        try (HWPFDocument document = DocumentLoader.openDoc(input)) {
+          convertDocToPdf(document, out);
+        }
       }
+    }
+  }
+
+  /** Convert a file, reading it with random access instead of loading it from a stream */
+  @Override
+  public void convert(File input, OutputStream out, ConversionOptions options) throws Exception {
+    DocumentFormat format = DocumentFormat.resolve(input, options);
+
+    try (ConversionTrace trace = ConversionTrace.begin(engineId(), input)) {
+      if (format == DocumentFormat.DOCX) {
+        try (XWPFDocument document = DocumentLoader.openDocx(input)) {
+          convertDocxToPdf(document, out);
+        }
+      } else if (format == DocumentFormat.DOC) {
+        try (HWPFDocument document = DocumentLoader.openDoc(input)) {
+          convertDocToPdf(document, out);
+        }
+      }
+    }
+  }
+
+  private static Document openPdf(OutputStream out) throws DocumentException {
+    Document pdfDoc = new Document();
+    PdfWriter.getInstance(pdfDoc, CloseShieldOutputStream.wrap(out));
+    pdfDoc.open();
+    return pdfDoc;
+  }
+
+  private static void closePdf(Document pdfDoc) {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.WRITE)) {
+      pdfDoc.close();
+    }
+  }
+
+  private static void convertDocxToPdf(XWPFDocument document, OutputStream out) throws Exception {
+    Document pdfDoc = openPdf(out);
 
-      // Check for images in paragraph
-      for (XWPFRun run : paragraph.getRuns()) {
-        List<XWPFPicture> pictures = run.getEmbeddedPictures();
-        for (XWPFPicture picture : pictures) {
-          byte[] imageData = picture.getPictureData().getData();
-          try {
-            Image image = Image.getInstance(imageData);
-            // Scale image if too large
-            if (image.getWidth() > 500) {
-              image.scaleToFit(500, 400);
+    try (ConversionTrace.Stage layout = ConversionTrace.stage(ConversionStage.LAYOUT)) {
+      // Process paragraphs
+      for (XWPFParagraph paragraph : document.getParagraphs()) {
+        String text = paragraph.getText();
+        if (text != null && !text.trim().isEmpty()) {
+          pdfDoc.add(new Paragraph(text));
+        }
+
+        // Check for images in paragraph
+        for (XWPFRun run : paragraph.getRuns()) {
+          List<XWPFPicture> pictures = run.getEmbeddedPictures();
+          for (XWPFPicture picture : pictures) {
+            try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.IMAGE)) {
+              byte[] imageData = picture.getPictureData().getData();
+              Image image = Image.getInstance(imageData);
+              // Scale image if too large
+              if (image.getWidth() > 500) {
+                image.scaleToFit(500, 400);
+              }
+              pdfDoc.add(image);
+            } catch (Exception e) {
+              System.out.println("Could not add image: " + e.getMessage());
             }
-            pdfDoc.add(image);
-          } catch (Exception e) {
-            System.out.println("Could not add image: " + e.getMessage());
           }
         }
       }
-    }
 
-    // Process tables
-    for (XWPFTable table : document.getTables()) {
-      processTable(table, pdfDoc);
+      // Process tables
+      for (XWPFTable table : document.getTables()) {
+        processTable(table, pdfDoc);
+      }
     }
 
-    document.close();
-    fis.close();
+    closePdf(pdfDoc);
   }
 
-  private static void convertDocToPdf(String inputPath, Document pdfDoc) throws Exception {
-    FileInputStream fis = new FileInputStream(inputPath);
-    HWPFDocument document = new HWPFDocument(fis);
+  private static void convertDocToPdf(HWPFDocument document, OutputStream out) throws Exception {
+    Document pdfDoc = openPdf(out);
 
     // Extract text
-    String text = document.getDocumentText();
-    if (text != null && !text.trim().isEmpty()) {
-      pdfDoc.add(new Paragraph(text));
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LAYOUT)) {
+      String text = document.getDocumentText();
+      if (text != null && !text.trim().isEmpty()) {
+        pdfDoc.add(new Paragraph(text));
+      }
     }
 
     // Extract pictures
     List<Picture> pictures = document.getPicturesTable().getAllPictures();
     for (Picture picture : pictures) {
-      try {
+      try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.IMAGE)) {
         byte[] imageData = picture.getContent();
         Image image = Image.getInstance(imageData);
         if (image.getWidth() > 500) {
@@ -94,8 +138,7 @@ public class AdvancedDocToPdfConverter {
       }
     }
 
-    document.close();
-    fis.close();
+    closePdf(pdfDoc);
   }
 
   private static void processTable(XWPFTable table, Document pdfDoc) throws DocumentException {
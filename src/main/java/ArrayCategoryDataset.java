@@ -0,0 +1,149 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jfree.data.UnknownKeyException;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.AbstractDataset;
+
+/**
+ * Read-only CategoryDataset over the arrays read from a chart cache. Values are kept unboxed in a
+ * row-major {@code double[][]}, with NaN for a category a series has no value for.
+ */
+public class ArrayCategoryDataset extends AbstractDataset implements CategoryDataset {
+
+  private final String[] rowKeys;
+  private final String[] columnKeys;
+  private final double[][] values;
+
+  private final Map<String, Integer> rowIndex;
+  private final Map<String, Integer> columnIndex;
+
+  public ArrayCategoryDataset(String[] rowKeys, String[] columnKeys, double[][] values) {
+    this.rowKeys = rowKeys;
+    this.columnKeys = columnKeys;
+    this.values = values;
+    this.rowIndex = indexOf(rowKeys);
+    this.columnIndex = indexOf(columnKeys);
+  }
+
+  /**
+   * One row per series and one column per category, in first-seen order. Repeated series names and
+   * categories share a row or column, later values winning, as with DefaultCategoryDataset.
+   */
+  public static ArrayCategoryDataset of(List<ChartData.Series> series) {
+    Map<String, Integer> rows = new HashMap<>();
+    Map<String, Integer> columns = new HashMap<>();
+    List<String> rowKeys = new ArrayList<>();
+    List<String> columnKeys = new ArrayList<>();
+
+    int[] rowOf = new int[series.size()];
+    int[][] columnOf = new int[series.size()][];
+    for (int s = 0; s < series.size(); s++) {
+      ChartData.Series current = series.get(s);
+      rowOf[s] = addKey(rows, rowKeys, current.getName());
+
+      String[] categories = current.getCategories();
+      columnOf[s] = new int[current.getPointCount()];
+      for (int i = 0; i < columnOf[s].length; i++) {
+        columnOf[s][i] = addKey(columns, columnKeys, categories[i]);
+      }
+    }
+
+    double[][] values = new double[rowKeys.size()][columnKeys.size()];
+    for (double[] row : values) {
+      Arrays.fill(row, Double.NaN);
+    }
+    for (int s = 0; s < series.size(); s++) {
+      double[] seriesValues = series.get(s).getValues();
+      double[] row = values[rowOf[s]];
+      for (int i = 0; i < columnOf[s].length; i++) {
+        row[columnOf[s][i]] = seriesValues[i];
+      }
+    }
+
+    return new ArrayCategoryDataset(
+        rowKeys.toArray(new String[0]), columnKeys.toArray(new String[0]), values);
+  }
+
+  @Override
+  public int getRowCount() {
+    return rowKeys.length;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return columnKeys.length;
+  }
+
+  @Override
+  public Number getValue(int row, int column) {
+    double value = values[row][column];
+    return Double.isNaN(value) ? null : value;
+  }
+
+  @Override
+  public Comparable getRowKey(int row) {
+    return rowKeys[row];
+  }
+
+  @Override
+  public int getRowIndex(Comparable key) {
+    Integer index = rowIndex.get(key);
+    return index != null ? index : -1;
+  }
+
+  @Override
+  public List getRowKeys() {
+    return Collections.unmodifiableList(Arrays.asList(rowKeys));
+  }
+
+  @Override
+  public Comparable getColumnKey(int column) {
+    return columnKeys[column];
+  }
+
+  @Override
+  public int getColumnIndex(Comparable key) {
+    Integer index = columnIndex.get(key);
+    return index != null ? index : -1;
+  }
+
+  @Override
+  public List getColumnKeys() {
+    return Collections.unmodifiableList(Arrays.asList(columnKeys));
+  }
+
+  @Override
+  public Number getValue(Comparable rowKey, Comparable columnKey) {
+    int row = getRowIndex(rowKey);
+    if (row < 0) {
+      throw new UnknownKeyException("Unrecognised rowKey: " + rowKey);
+    }
+    int column = getColumnIndex(columnKey);
+    if (column < 0) {
+      throw new UnknownKeyException("Unrecognised columnKey: " + columnKey);
+    }
+    return getValue(row, column);
+  }
+
+  /** Index of key, appending it if it is new */
+  private static int addKey(Map<String, Integer> index, List<String> keys, String key) {
+    Integer existing = index.putIfAbsent(key, keys.size());
+    if (existing != null) {
+      return existing;
+    }
+    keys.add(key);
+    return keys.size() - 1;
+  }
+
+  private static Map<String, Integer> indexOf(String[] keys) {
+    Map<String, Integer> index = new HashMap<>(keys.length * 2);
+    for (int i = 0; i < keys.length; i++) {
+      index.putIfAbsent(keys[i], i);
+    }
+    return index;
+  }
+}
@@ -0,0 +1,81 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jfree.data.UnknownKeyException;
+import org.jfree.data.general.AbstractDataset;
+import org.jfree.data.general.PieDataset;
+
+/** Read-only PieDataset over one series' category and value arrays, kept unboxed */
+public class ArrayPieDataset extends AbstractDataset implements PieDataset<String> {
+
+  private final String[] keys;
+  private final double[] values;
+  private final Map<String, Integer> index;
+
+  public ArrayPieDataset(String[] keys, double[] values) {
+    this.keys = keys;
+    this.values = values;
+    this.index = new HashMap<>(keys.length * 2);
+    for (int i = 0; i < keys.length; i++) {
+      index.putIfAbsent(keys[i], i);
+    }
+  }
+
+  /** One section per category; a repeated category keeps its first position and last value */
+  public static ArrayPieDataset of(ChartData.Series series) {
+    String[] categories = series.getCategories();
+    double[] seriesValues = series.getValues();
+    int count = series.getPointCount();
+
+    Map<String, Integer> sections = new HashMap<>(count * 2);
+    String[] keys = new String[count];
+    double[] values = new double[count];
+    for (int i = 0; i < count; i++) {
+      Integer section = sections.putIfAbsent(categories[i], sections.size());
+      int at = section != null ? section : sections.size() - 1;
+      keys[at] = categories[i];
+      values[at] = seriesValues[i];
+    }
+
+    return new ArrayPieDataset(
+        Arrays.copyOf(keys, sections.size()), Arrays.copyOf(values, sections.size()));
+  }
+
+  @Override
+  public int getItemCount() {
+    return keys.length;
+  }
+
+  @Override
+  public Number getValue(int item) {
+    double value = values[item];
+    return Double.isNaN(value) ? null : value;
+  }
+
+  @Override
+  public String getKey(int item) {
+    return keys[item];
+  }
+
+  @Override
+  public int getIndex(String key) {
+    Integer item = index.get(key);
+    return item != null ? item : -1;
+  }
+
+  @Override
+  public List<String> getKeys() {
+    return Collections.unmodifiableList(Arrays.asList(keys));
+  }
+
+  @Override
+  public Number getValue(String key) {
+    int item = getIndex(key);
+    if (item < 0) {
+      throw new UnknownKeyException("Key not found: " + key);
+    }
+    return getValue(item);
+  }
+}
@@ -1,14 +1,33 @@
 import com.aspose.words.Document;
 import com.aspose.words.SaveFormat;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 
-public class AsposeDocxToPdfConverter {
+public class AsposeDocxToPdfConverter implements DocumentConverter {
   public static void main(String[] args) throws Exception {
-    // Load the input DOCX file
-    Document doc = new Document("file-sample.docx");
-
-    // Save the document as PDF
-    doc.save("output_aspose.pdf", SaveFormat.PDF);
+    // Load the input DOCX file and save the document as PDF
+    try (InputStream in = new FileInputStream("file-sample.docx");
+        OutputStream out = new FileOutputStream("output_aspose.pdf")) {
+      new AsposeDocxToPdfConverter().convert(in, out, ConversionOptions.create());
+    }
 
     System.out.println("Conversion to PDF completed successfully using Aspose.Words!");
   }
+
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    try (ConversionTrace trace = ConversionTrace.begin(engineId())) {
+      Document doc;
+      try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LOAD)) {
+        doc = new Document(in);
+      }
+      // Aspose lays out and writes pages in one pass
+      try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LAYOUT)) {
+        doc.save(out, SaveFormat.PDF);
+      }
+    }
+  }
 }
@@ -0,0 +1,45 @@
+import java.nio.file.Path;
+
+/** Outcome for one input of a batch conversion */
+public class BatchConversionResult {
+
+  private final Path input;
+  private final Path output;
+  private final String error;
+
+  private BatchConversionResult(Path input, Path output, String error) {
+    this.input = input;
+    this.output = output;
+    this.error = error;
+  }
+
+  public static BatchConversionResult converted(Path input, Path output) {
+    return new BatchConversionResult(input, output, null);
+  }
+
+  public static BatchConversionResult failed(Path input, String error) {
+    return new BatchConversionResult(input, null, error);
+  }
+
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  public Path getInput() {
+    return input;
+  }
+
+  /** The PDF written for this input, or null if the conversion failed */
+  public Path getOutput() {
+    return output;
+  }
+
+  public String getError() {
+    return error;
+  }
+
+  @Override
+  public String toString() {
+    return isSuccess() ? input + " -> " + output : input + " failed: " + error;
+  }
+}
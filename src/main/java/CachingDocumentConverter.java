@@ -0,0 +1,75 @@
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Serves repeated conversions from a {@link ConversionCache}. Entries are keyed by the SHA-256 of
+ * the input bytes together with the engine id and the options, so the same attachment converted by
+ * the same engine is only converted once.
+ */
+public class CachingDocumentConverter implements DocumentConverter {
+
+  private final DocumentConverter delegate;
+  private final ConversionCache cache;
+
+  public CachingDocumentConverter(DocumentConverter delegate, ConversionCache cache) {
+    this.delegate = delegate;
+    this.cache = cache;
+  }
+
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    // Spool the input while hashing it, the engine reads it again on a miss
+    Path spoolDir = ScratchSpace.createTempDirectory("cache-spool");
+    try {
+      Path spooled = spoolDir.resolve("input");
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      Files.copy(new DigestInputStream(in, digest), spooled);
+
+      String key = cacheKey(digest.digest(), options);
+      try (InputStream pdf =
+          cache.getOrCompute(
+              key,
+              target -> {
+                try (InputStream source = Files.newInputStream(spooled)) {
+                  delegate.convert(source, target, options);
+                }
+              })) {
+        pdf.transferTo(out);
+      }
+    } finally {
+      ScratchSpace.delete(spoolDir);
+    }
+  }
+
+  @Override
+  public String engineId() {
+    return delegate.engineId();
+  }
+
+  @Override
+  public boolean isInProcess() {
+    return delegate.isInProcess();
+  }
+
+  public ConversionCache getCache() {
+    return cache;
+  }
+
+  private String cacheKey(byte[] inputDigest, ConversionOptions options) throws Exception {
+    String material =
+        HexFormat.of().formatHex(inputDigest)
+            + "|"
+            + delegate.engineId()
+            + "|"
+            + options.cacheKey();
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    return HexFormat.of().formatHex(digest.digest(material.getBytes(StandardCharsets.UTF_8)));
+  }
+}
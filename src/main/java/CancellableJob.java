@@ -0,0 +1,67 @@
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A job queued for the office pools, run on one of the pool's resources: a worker or a container.
+ * Cancelling its future while it runs interrupts the thread running it, which kills the office
+ * invocation; a job cancelled while still queued is skipped.
+ */
+final class CancellableJob<R, T> {
+
+  /** The work of a job, done with the resource of the pool thread that takes it */
+  interface Task<R, T> {
+    T run(R resource) throws Exception;
+  }
+
+  private final Task<R, T> task;
+  private final CompletableFuture<T> result = new CompletableFuture<>();
+  private Thread runner;
+
+  CancellableJob(Task<R, T> task) {
+    this.task = task;
+    result.whenComplete(
+        (value, failure) -> {
+          if (result.isCancelled()) {
+            interruptRunner();
+          }
+        });
+  }
+
+  CompletableFuture<T> getResult() {
+    return result;
+  }
+
+  /** Run the job on the current thread and complete its future, unless it was cancelled */
+  void run(R resource) {
+    if (!begin()) {
+      return;
+    }
+    try {
+      result.complete(task.run(resource));
+    } catch (Exception e) {
+      result.completeExceptionally(e);
+    } finally {
+      end();
+    }
+  }
+
+  /** Claim the job for the current thread, false if it was cancelled while queued */
+  private synchronized boolean begin() {
+    if (result.isDone()) {
+      return false;
+    }
+    runner = Thread.currentThread();
+    return true;
+  }
+
+  /** Release the job, dropping an interrupt from a cancel that came too late to matter */
+  private synchronized void end() {
+    runner = null;
+    Thread.interrupted();
+  }
+
+  private synchronized void interruptRunner() {
+    if (runner != null) {
+      runner.interrupt();
+    }
+  }
+}
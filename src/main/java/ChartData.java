@@ -0,0 +1,73 @@
+import java.util.List;
+
+/**
+ * Immutable snapshot of a chart's type, title and cached series values. Read from the chart part on
+ * one thread, it can then be rendered on any other.
+ */
+public final class ChartData {
+
+  public enum Type {
+    BAR,
+    LINE,
+    PIE,
+    AREA
+  }
+
+  /** One data series; the arrays are owned by this object and must not be modified */
+  public static final class Series {
+    private final String name;
+    private final String[] categories;
+    private final double[] values;
+
+    public Series(String name, String[] categories, double[] values) {
+      this.name = name;
+      this.categories = categories;
+      this.values = values;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String[] getCategories() {
+      return categories;
+    }
+
+    public double[] getValues() {
+      return values;
+    }
+
+    /** Number of points that have both a category and a value */
+    public int getPointCount() {
+      return Math.min(categories.length, values.length);
+    }
+  }
+
+  private final Type type;
+  private final String title;
+  private final List<Series> series;
+
+  public ChartData(Type type, String title, List<Series> series) {
+    this.type = type;
+    this.title = title;
+    this.series = List.copyOf(series);
+  }
+
+  /** A chart whose type is not supported or whose data could not be read */
+  public static ChartData unsupported(String title) {
+    return new ChartData(null, title, List.of());
+  }
+
+  /** Chart type, or null if the chart cannot be rendered from its data */
+  public Type getType() {
+    return type;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public List<Series> getSeries() {
+    return series;
+  }
+}
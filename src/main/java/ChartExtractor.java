@@ -13,8 +13,7 @@ public class ChartExtractor {
 
   public static void extractChartsFromDocx(String inputPath) {
     try {
-      FileInputStream fis = new FileInputStream(inputPath);
-      XWPFDocument document = new XWPFDocument(fis);
+      XWPFDocument document = DocumentLoader.openDocx(new File(inputPath));
 
       System.out.println("=== Extracting Charts ===");
 
@@ -28,7 +27,6 @@ public class ChartExtractor {
       extractChartsFromHeadersFooters(document);
 
       document.close();
-      fis.close();
 
     } catch (Exception e) {
       e.printStackTrace();
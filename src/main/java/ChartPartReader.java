@@ -0,0 +1,284 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.poi.util.XMLHelper;
+
+/**
+ * Reads a DrawingML chart part in one forward StAX pass. Only the chart title, the first bar, line,
+ * pie or area group and the cached series values are kept, straight into primitive arrays, so no
+ * DOM or XMLBeans tree is built for the part. Categories come from any string or number cache or
+ * literal, numbers kept as their cached text; only a series without one gets placeholders.
+ */
+public class ChartPartReader {
+
+  private static final XMLInputFactory FACTORY = XMLHelper.newXMLInputFactory();
+
+  // Placeholder data for a series without cached categories or values
+  private static final String[] DEFAULT_CATEGORIES = {"Category 1", "Category 2", "Category 3"};
+  private static final double[] DEFAULT_VALUES = {10.0, 20.0, 15.0};
+
+  // Points beyond this index are ignored, so a hostile ptCount or idx cannot exhaust the heap
+  private static final int MAX_POINTS = 1_000_000;
+
+  private final Map<ChartData.Type, List<ChartData.Series>> groups =
+      new EnumMap<>(ChartData.Type.class);
+  private final Deque<String> path = new ArrayDeque<>();
+
+  private String title = "";
+  private int titleParagraphs;
+  private boolean inCache;
+
+  // Chart group and series being read; group is null while skipping a group
+  private List<ChartData.Series> group;
+  private SeriesBuilder series;
+  // The series child being read: tx, cat or val
+  private String section;
+
+  /** Read the chart, closing the stream */
+  public static ChartData read(InputStream in) throws XMLStreamException {
+    try (InputStream input = in) {
+      XMLStreamReader reader = FACTORY.createXMLStreamReader(input);
+      try {
+        return new ChartPartReader().parse(reader);
+      } finally {
+        reader.close();
+      }
+    } catch (IOException e) {
+      throw new XMLStreamException(e);
+    }
+  }
+
+  private ChartData parse(XMLStreamReader reader) throws XMLStreamException {
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        startElement(reader);
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        endElement(path.pop());
+      }
+    }
+    return toChartData();
+  }
+
+  private void startElement(XMLStreamReader reader) throws XMLStreamException {
+    String name = reader.getLocalName();
+    String parent = path.peek();
+
+    if (name.equals("v") || name.equals("t")) {
+      // getElementText consumes the end tag, so the element is never pushed
+      readText(name, parent, reader.getElementText());
+      return;
+    }
+    path.push(name);
+    if (isCache(name)) {
+      inCache = true;
+    }
+
+    if ("plotArea".equals(parent)) {
+      ChartData.Type type = groupType(name);
+      group = type != null && !groups.containsKey(type) ? new ArrayList<>() : null;
+      if (group != null) {
+        groups.put(type, group);
+      }
+    } else if (name.equals("ser") && group != null && path.size() == 5) {
+      series = new SeriesBuilder();
+    } else if (series != null && path.size() == 6) {
+      // path is c:chartSpace/c:chart/c:plotArea/c:xxxChart/c:ser/<section>
+      section = name;
+    } else if (name.equals("title") && "chart".equals(parent)) {
+      titleParagraphs = 0;
+    } else if (name.equals("p") && inTitle()) {
+      titleParagraphs++;
+    } else if (series != null && name.equals("ptCount")) {
+      series.allocate(section, parseInt(reader.getAttributeValue(null, "val")));
+    } else if (series != null && name.equals("pt")) {
+      series.point = parseInt(reader.getAttributeValue(null, "idx"));
+    }
+  }
+
+  private void endElement(String name) {
+    if (isCache(name)) {
+      inCache = false;
+    } else if (name.equals("ser") && series != null && path.size() == 4) {
+      group.add(series.build());
+      series = null;
+      section = null;
+    } else if (path.size() == 3 && groupType(name) != null) {
+      group = null;
+    }
+  }
+
+  private void readText(String name, String parent, String text) {
+    if (name.equals("t")) {
+      // First run of the first paragraph of the chart title
+      if ("r".equals(parent) && inTitle() && titleParagraphs == 1 && title.isEmpty()) {
+        title = text;
+      }
+      return;
+    }
+    if (series == null) {
+      return;
+    }
+
+    if ("tx".equals(section)) {
+      // A literal name sits directly in c:tx, a referenced one in its string cache
+      if (series.name == null && ("tx".equals(parent) || inCache)) {
+        series.name = text;
+      }
+    } else if ("pt".equals(parent) && inCache) {
+      if ("cat".equals(section)) {
+        series.setCategory(text);
+      } else if ("val".equals(section)) {
+        series.setValue(text);
+      }
+    }
+  }
+
+  private boolean inTitle() {
+    // c:chartSpace/c:chart/c:title/c:tx/c:rich/...
+    return path.size() >= 5 && elementAt(2).equals("chart") && elementAt(3).equals("title");
+  }
+
+  /** Element at the given depth, counting the root as depth 1 */
+  private String elementAt(int depth) {
+    int skip = path.size() - depth;
+    for (String name : path) {
+      if (skip-- == 0) {
+        return name;
+      }
+    }
+    return null;
+  }
+
+  private ChartData toChartData() {
+    // Same precedence as the chart types were checked in before
+    for (ChartData.Type type :
+        new ChartData.Type[] {
+          ChartData.Type.BAR, ChartData.Type.LINE, ChartData.Type.PIE, ChartData.Type.AREA
+        }) {
+      List<ChartData.Series> series = groups.get(type);
+      if (series != null) {
+        // Usually only one series in pie chart
+        if (type == ChartData.Type.PIE && series.size() > 1) {
+          series = series.subList(0, 1);
+        }
+        return new ChartData(type, title, series);
+      }
+    }
+    return ChartData.unsupported(title);
+  }
+
+  private static boolean isCache(String name) {
+    return name.equals("strCache")
+        || name.equals("numCache")
+        || name.equals("strLit")
+        || name.equals("numLit");
+  }
+
+  private static ChartData.Type groupType(String name) {
+    switch (name) {
+      case "barChart":
+        return ChartData.Type.BAR;
+      case "lineChart":
+        return ChartData.Type.LINE;
+      case "pieChart":
+        return ChartData.Type.PIE;
+      case "areaChart":
+        return ChartData.Type.AREA;
+      default:
+        return null;
+    }
+  }
+
+  private static int parseInt(String value) {
+    try {
+      return value != null ? Integer.parseInt(value.trim()) : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /** Collects one series' cache, placing points by their idx so sparse caches stay aligned */
+  private static class SeriesBuilder {
+    String name;
+    String[] categories;
+    double[] values;
+    int categoryCount;
+    int valueCount;
+    int point;
+
+    void allocate(String section, int count) {
+      if (count < 0 || count > MAX_POINTS) {
+        return;
+      }
+      if ("cat".equals(section) && categories == null) {
+        categories = new String[count];
+      } else if ("val".equals(section) && values == null) {
+        values = new double[count];
+      }
+    }
+
+    void setCategory(String text) {
+      int idx = point >= 0 ? point : categoryCount;
+      if (idx >= MAX_POINTS) {
+        return;
+      }
+      if (categories == null) {
+        categories = new String[Math.max(16, idx + 1)];
+      } else if (idx >= categories.length) {
+        categories = Arrays.copyOf(categories, Math.max(categories.length * 2, idx + 1));
+      }
+      categories[idx] = text;
+      categoryCount = Math.max(categoryCount, idx + 1);
+    }
+
+    void setValue(String text) {
+      int idx = point >= 0 ? point : valueCount;
+      if (idx >= MAX_POINTS) {
+        return;
+      }
+      if (values == null) {
+        values = new double[Math.max(16, idx + 1)];
+      } else if (idx >= values.length) {
+        values = Arrays.copyOf(values, Math.max(values.length * 2, idx + 1));
+      }
+      try {
+        values[idx] = Double.parseDouble(text);
+      } catch (NumberFormatException e) {
+        values[idx] = 0.0;
+      }
+      valueCount = Math.max(valueCount, idx + 1);
+    }
+
+    ChartData.Series build() {
+      String[] cats = DEFAULT_CATEGORIES.clone();
+      if (categoryCount > 0) {
+        cats =
+            categories.length == categoryCount
+                ? categories
+                : Arrays.copyOf(categories, categoryCount);
+        for (int i = 0; i < cats.length; i++) {
+          if (cats[i] == null) {
+            cats[i] = Integer.toString(i + 1);
+          }
+        }
+      }
+
+      double[] vals = DEFAULT_VALUES.clone();
+      if (valueCount > 0) {
+        vals = values.length == valueCount ? values : Arrays.copyOf(values, valueCount);
+      }
+      return new ChartData.Series(name != null ? name : "Series", cats, vals);
+    }
+  }
+}
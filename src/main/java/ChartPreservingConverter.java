@@ -5,29 +5,58 @@ import com.itextpdf.text.pdf.PdfWriter;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import javax.imageio.ImageIO;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.poi.xwpf.usermodel.*;
 import org.openxmlformats.schemas.drawingml.x2006.chart.CTChart;
 import org.openxmlformats.schemas.drawingml.x2006.wordprocessingDrawing.CTInline;
 import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTDrawing;
 
-public class ChartPreservingConverter {
+public class ChartPreservingConverter implements DocumentConverter {
 
   public static void convertToPdf(String inputPath, String outputPath) {
-    try {
-      Document pdfDoc = new Document(PageSize.A4);
-      PdfWriter.getInstance(pdfDoc, new FileOutputStream(outputPath));
-      pdfDoc.open();
+    try (OutputStream out = new FileOutputStream(outputPath)) {
+      new ChartPreservingConverter().convert(new File(inputPath), out, ConversionOptions.create());
 
-      FileInputStream fis = new FileInputStream(inputPath);
-      XWPFDocument document = new XWPFDocument(fis);
+      System.out.println("Conversion completed!");
 
-      for (XWPFChart chart : document.getCharts()) {}
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
 
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    try (ConversionTrace trace = ConversionTrace.begin(engineId());
+        XWPFDocument document = DocumentLoader.openDocx(in, options)) {
+      convert(document, out);
+    }
+  }
+
+  /** Convert a file, reading it with random access instead of loading it from a stream */
+  @Override
+  public void convert(File input, OutputStream out, ConversionOptions options) throws Exception {
+    try (ConversionTrace trace = ConversionTrace.begin(engineId(), input);
+        XWPFDocument document = DocumentLoader.openDocx(input)) {
+      convert(document, out);
+    }
+  }
+
+  private static void convert(XWPFDocument document, OutputStream out) throws Exception {
+    Document pdfDoc = new Document(PageSize.A4);
+    PdfWriter.getInstance(pdfDoc, CloseShieldOutputStream.wrap(out));
+    pdfDoc.open();
+
+    for (XWPFChart chart : document.getCharts()) {}
+
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LAYOUT)) {
       // Process all body elements (paragraphs, tables, charts)
       for (IBodyElement element : document.getBodyElements()) {
         if (element instanceof XWPFParagraph) {
@@ -39,15 +68,10 @@ public class ChartPreservingConverter {
 
       // Handle charts separately
       processCharts(document, pdfDoc);
+    }
 
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.WRITE)) {
       pdfDoc.close();
-      document.close();
-      fis.close();
-
-      System.out.println("Conversion completed!");
-
-    } catch (Exception e) {
-      e.printStackTrace();
     }
   }
 
@@ -157,7 +181,7 @@ public class ChartPreservingConverter {
   }
 
   private static void addImageToPdf(byte[] imageData, Document pdfDoc) {
-    try {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.IMAGE)) {
       Image image = Image.getInstance(imageData);
       if (image.getWidth() > 500) {
         image.scaleToFit(500, 400);
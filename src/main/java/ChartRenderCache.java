@@ -0,0 +1,116 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-memory cache of rendered charts, keyed by a digest of the chart part plus the target
+ * size. Values are encoded images, or for vector output the chart data the drawing is made from,
+ * and the least recently used ones are dropped once their total size passes the memory ceiling.
+ */
+public class ChartRenderCache {
+
+  private final long maxBytes;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public ChartRenderCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /** The cached rendering, or null on a miss */
+  public byte[] get(String key) {
+    return get(key, byte[].class);
+  }
+
+  public void put(String key, byte[] value) {
+    put(key, value, value.length);
+  }
+
+  /** The cached chart data, or null on a miss */
+  public ChartData getChartData(String key) {
+    return get(key, ChartData.class);
+  }
+
+  public void putChartData(String key, ChartData data) {
+    put(key, data, estimatedBytes(data));
+  }
+
+  private synchronized <T> T get(String key, Class<T> type) {
+    Entry entry = entries.get(key);
+    if (entry != null && type.isInstance(entry.value)) {
+      hits++;
+      return type.cast(entry.value);
+    }
+    misses++;
+    return null;
+  }
+
+  private synchronized void put(String key, Object value, long bytes) {
+    if (bytes > maxBytes) {
+      return;
+    }
+    Entry previous = entries.put(key, new Entry(value, bytes));
+    totalBytes += bytes - (previous != null ? previous.bytes : 0);
+
+    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    while (totalBytes > maxBytes && it.hasNext()) {
+      Map.Entry<String, Entry> eldest = it.next();
+      it.remove();
+      totalBytes -= eldest.getValue().bytes;
+      evictions++;
+    }
+  }
+
+  /** Rough heap size of chart data: strings at two bytes a character, values at eight */
+  private static long estimatedBytes(ChartData data) {
+    long bytes = 64 + 2L * lengthOf(data.getTitle());
+    for (ChartData.Series series : data.getSeries()) {
+      bytes += 64 + 2L * lengthOf(series.getName()) + 8L * series.getValues().length;
+      for (String category : series.getCategories()) {
+        bytes += 48 + 2L * lengthOf(category);
+      }
+    }
+    return bytes;
+  }
+
+  private static int lengthOf(String text) {
+    return text != null ? text.length() : 0;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format(
+        "hits=%d misses=%d evictions=%d entries=%d bytes=%d/%d",
+        hits, misses, evictions, entries.size(), totalBytes, maxBytes);
+  }
+
+  private static final class Entry {
+    final Object value;
+    final long bytes;
+
+    Entry(Object value, long bytes) {
+      this.value = value;
+      this.bytes = bytes;
+    }
+  }
+}
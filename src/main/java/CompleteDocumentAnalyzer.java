@@ -1,18 +1,13 @@
 import java.io.*;
 import java.util.List;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import org.apache.poi.openxml4j.opc.*;
 import org.apache.poi.xwpf.usermodel.*;
-import org.w3c.dom.Document;
-import org.xml.sax.InputSource;
 
 public class CompleteDocumentAnalyzer {
 
   public static void analyzeDocument(String inputPath) {
     try {
-      FileInputStream fis = new FileInputStream(inputPath);
-      XWPFDocument document = new XWPFDocument(fis);
+      XWPFDocument document = DocumentLoader.openDocx(new File(inputPath));
 
       System.out.println("=== Complete Document Analysis ===");
 
@@ -26,7 +21,6 @@ public class CompleteDocumentAnalyzer {
       checkEmbeddedObjects(document);
 
       document.close();
-      fis.close();
 
     } catch (Exception e) {
       e.printStackTrace();
@@ -121,19 +115,17 @@ public class CompleteDocumentAnalyzer {
 
   private static void extractChartData(PackagePart chartPart) {
     try {
-      InputStream chartStream = chartPart.getInputStream();
-
-      // Parse the chart XML
-      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder builder = factory.newDocumentBuilder();
-      Document chartDoc = builder.parse(new InputSource(chartStream));
+      // Stream the chart XML instead of building a DOM for it
+      ChartData chart = ChartPartReader.read(chartPart.getInputStream());
 
       System.out.println("  Chart XML parsed successfully");
+      System.out.println("  Type: " + (chart.getType() != null ? chart.getType() : "unsupported"));
+      System.out.println("  Title: " + chart.getTitle());
 
-      // You can now traverse the chart XML to extract data
-      // This would involve parsing the chart structure, series data, etc.
-
-      chartStream.close();
+      for (ChartData.Series series : chart.getSeries()) {
+        System.out.println(
+            "  Series: " + series.getName() + " (" + series.getPointCount() + " points)");
+      }
 
     } catch (Exception e) {
       System.out.println("  Error extracting chart data: " + e.getMessage());
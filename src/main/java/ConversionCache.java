@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Disk-backed store of converted PDFs with an in-memory LRU index. Entries are written to a temp
+ * file and moved into place, so readers never see a partial PDF, and the least recently used
+ * entries are deleted once the byte budget is exceeded. Concurrent requests for a key that is being
+ * produced wait for that one conversion instead of starting their own.
+ */
+public class ConversionCache {
+
+  /** Writes the PDF for a missing entry */
+  public interface Producer {
+    void writeTo(OutputStream out) throws Exception;
+  }
+
+  private final Path dir;
+  private final long maxBytes;
+
+  // Access-ordered, so iteration starts at the least recently used entry
+  private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+  private long totalBytes;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public ConversionCache(Path dir, long maxBytes) throws IOException {
+    this.dir = dir;
+    this.maxBytes = maxBytes;
+    Files.createDirectories(dir);
+    loadIndex();
+  }
+
+  /**
+   * Open the cached PDF for a key, producing it first if needed. The stream is opened before the
+   * entry can be evicted, so it stays readable even if the file is deleted meanwhile.
+   */
+  public InputStream getOrCompute(String key, Producer producer) throws Exception {
+    InputStream cached = open(key);
+    if (cached != null) {
+      hits.incrementAndGet();
+      return cached;
+    }
+
+    CompletableFuture<Void> mine = new CompletableFuture<>();
+    CompletableFuture<Void> existing = inFlight.putIfAbsent(key, mine);
+    if (existing != null) {
+      coalesced.incrementAndGet();
+      try {
+        existing.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+      }
+      InputStream produced = open(key);
+      if (produced != null) {
+        return produced;
+      }
+      // Evicted before we could read it, produce it again
+      return getOrCompute(key, producer);
+    }
+
+    try {
+      // Another producer may have finished between our lookup and claiming the key
+      InputStream produced = open(key);
+      if (produced != null) {
+        hits.incrementAndGet();
+      } else {
+        misses.incrementAndGet();
+        produced = produce(key, producer);
+      }
+      mine.complete(null);
+      return produced;
+    } catch (Exception e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key);
+    }
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /** Requests that waited on a conversion already running for the same key */
+  public long getCoalesced() {
+    return coalesced.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  public synchronized int getEntryCount() {
+    return index.size();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "hits=%d misses=%d coalesced=%d evictions=%d entries=%d bytes=%d/%d",
+        getHits(),
+        getMisses(),
+        getCoalesced(),
+        getEvictions(),
+        getEntryCount(),
+        getTotalBytes(),
+        maxBytes);
+  }
+
+  private synchronized InputStream open(String key) throws IOException {
+    if (index.get(key) == null) {
+      return null;
+    }
+    try {
+      return Files.newInputStream(entryPath(key));
+    } catch (IOException e) {
+      // Removed from disk behind our back
+      totalBytes -= index.remove(key);
+      return null;
+    }
+  }
+
+  private InputStream produce(String key, Producer producer) throws Exception {
+    Path tmp = Files.createTempFile(dir, key, ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(tmp)) {
+        producer.writeTo(out);
+      }
+      long size = Files.size(tmp);
+
+      synchronized (this) {
+        Files.move(tmp, entryPath(key), StandardCopyOption.ATOMIC_MOVE);
+        InputStream in = Files.newInputStream(entryPath(key));
+
+        Long previous = index.put(key, size);
+        totalBytes += size - (previous != null ? previous : 0);
+        evict();
+        return in;
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /** Drop least recently used entries until the cache fits its budget */
+  private void evict() throws IOException {
+    Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+    while (totalBytes > maxBytes && it.hasNext()) {
+      Map.Entry<String, Long> eldest = it.next();
+      it.remove();
+      totalBytes -= eldest.getValue();
+      evictions.incrementAndGet();
+      Files.deleteIfExists(entryPath(eldest.getKey()));
+    }
+  }
+
+  /** Rebuild the index from a previous run, oldest entries first */
+  private void loadIndex() throws IOException {
+    List<Path> entries;
+    try (Stream<Path> files = Files.list(dir)) {
+      entries = files.collect(Collectors.toList());
+    }
+
+    entries.sort(Comparator.comparingLong(ConversionCache::lastModified));
+    for (Path entry : entries) {
+      String name = entry.getFileName().toString();
+      if (name.endsWith(".tmp")) {
+        Files.deleteIfExists(entry);
+      } else if (name.endsWith(".pdf")) {
+        long size = Files.size(entry);
+        index.put(name.substring(0, name.length() - ".pdf".length()), size);
+        totalBytes += size;
+      }
+    }
+    evict();
+  }
+
+  private Path entryPath(String key) {
+    return dir.resolve(key + ".pdf");
+  }
+
+  private static long lastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the stages of a conversion, one event type per {@link
+ * ConversionStage}. {@link ConversionTrace} emits them for every stage whenever a recording has
+ * them enabled, with or without a sink, so a continuous recording shows which document and which
+ * stage a latency spike came from. Like other custom events they are on in any recording whose
+ * settings do not turn them off; a {@code threshold} on {@code com.ubitec.ubiid.*} keeps only the
+ * slow ones.
+ */
+public final class ConversionEvents {
+
+  // Looked up once, so checking whether a recording takes the events allocates nothing
+  private static final EventType[] TYPES = eventTypes();
+
+  private ConversionEvents() {}
+
+  /** The event for a stage, not yet begun; it records nothing unless {@code isEnabled()} */
+  static StageEvent create(ConversionStage stage) {
+    switch (stage) {
+      case LOAD:
+        return new Load();
+      case CHART_EXTRACT:
+        return new ChartExtract();
+      case CHART_RENDER:
+        return new ChartRender();
+      case IMAGE:
+        return new ImageEmbed();
+      case LAYOUT:
+        return new Layout();
+      case WRITE:
+        return new Write();
+      default:
+        return new ExternalProcess();
+    }
+  }
+
+  /** Whether a recording is taking the event of a stage */
+  static boolean isEnabled(ConversionStage stage) {
+    return TYPES[stage.ordinal()].isEnabled();
+  }
+
+  /** Whether a recording is taking any of the stage events */
+  static boolean isEnabled() {
+    for (EventType type : TYPES) {
+      if (type.isEnabled()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static EventType[] eventTypes() {
+    ConversionStage[] stages = ConversionStage.values();
+    EventType[] types = new EventType[stages.length];
+    for (ConversionStage stage : stages) {
+      types[stage.ordinal()] = EventType.getEventType(create(stage).getClass());
+    }
+    return types;
+  }
+
+  @Category({"Document Conversion"})
+  @StackTrace(false)
+  public abstract static class StageEvent extends Event {
+
+    @Label("Conversion Id")
+    @Description("Sequence number of the conversion in this JVM, shared by all its stages")
+    long conversionId;
+
+    @Label("Document")
+    @Description("File name of the input, or stream")
+    String document;
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Document Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Paragraphs")
+    long paragraphs;
+
+    @Label("Tables")
+    long tables;
+
+    @Label("Charts")
+    long charts;
+
+    @Label("Pictures")
+    long pictures;
+  }
+
+  @Name("com.ubitec.ubiid.Load")
+  @Label("Document Load")
+  @Description("Parsing the Word package or OLE2 file")
+  public static class Load extends StageEvent {}
+
+  @Name("com.ubitec.ubiid.ChartExtract")
+  @Label("Chart Extraction")
+  @Description("Reading chart parts and their data")
+  public static class ChartExtract extends StageEvent {}
+
+  @Name("com.ubitec.ubiid.ChartRender")
+  @Label("Chart Render")
+  @Description("Drawing charts to images or PDF graphics")
+  public static class ChartRender extends StageEvent {}
+
+  @Name("com.ubitec.ubiid.ImageEmbed")
+  @Label("Image Embed")
+  @Description("Decoding a picture and adding it to the PDF")
+  public static class ImageEmbed extends StageEvent {}
+
+  @Name("com.ubitec.ubiid.Layout")
+  @Label("Layout")
+  @Description("Laying out text and tables")
+  public static class Layout extends StageEvent {}
+
+  @Name("com.ubitec.ubiid.Write")
+  @Label("PDF Write")
+  @Description("Finishing the PDF and writing it out")
+  public static class Write extends StageEvent {}
+
+  @Name("com.ubitec.ubiid.ExternalProcess")
+  @Label("External Process Wait")
+  @Description("Waiting for LibreOffice or another office process to convert the document")
+  public static class ExternalProcess extends StageEvent {}
+}
@@ -0,0 +1,43 @@
+/** Options shared by all {@link DocumentConverter} implementations */
+public class ConversionOptions {
+
+  private DocumentFormat sourceFormat;
+  private boolean largeDocument;
+
+  public static ConversionOptions create() {
+    return new ConversionOptions();
+  }
+
+  /** Options for a file on disk, taking the source format from its extension */
+  public static ConversionOptions forFile(String path) {
+    return create().sourceFormat(DocumentFormat.fromFileName(path));
+  }
+
+  /** Source format, or null to sniff it from the input */
+  public DocumentFormat getSourceFormat() {
+    return sourceFormat;
+  }
+
+  public ConversionOptions sourceFormat(DocumentFormat sourceFormat) {
+    this.sourceFormat = sourceFormat;
+    return this;
+  }
+
+  public boolean isLargeDocument() {
+    return largeDocument;
+  }
+
+  /**
+   * Spill package entries above {@code docx.spill.thresholdKb} to temp files when a document is
+   * loaded from a stream, instead of holding every entry in memory
+   */
+  public ConversionOptions largeDocument(boolean largeDocument) {
+    this.largeDocument = largeDocument;
+    return this;
+  }
+
+  /** The options that can change the produced PDF, as a key for cached results */
+  public String cacheKey() {
+    return "sourceFormat=" + sourceFormat;
+  }
+}
@@ -0,0 +1,90 @@
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Inputs that made an external converter run into its deadline. Each one is copied into {@code
+ * conversion.quarantine.dir} (default {@code quarantine}) under its SHA-256, so it outlives the
+ * scratch space it was converted from, and a tab-separated line of time, engine, timeout, copy and
+ * original path is appended to {@code quarantine.log} there.
+ */
+public class ConversionQuarantine {
+
+  private static ConversionQuarantine shared;
+
+  private final Path dir;
+
+  public ConversionQuarantine(Path dir) {
+    this.dir = dir;
+  }
+
+  /** Quarantine in the directory from {@code conversion.quarantine.dir}, created on first use */
+  public static synchronized ConversionQuarantine shared() {
+    if (shared == null) {
+      shared =
+          new ConversionQuarantine(
+              Paths.get(System.getProperty("conversion.quarantine.dir", "quarantine")));
+    }
+    return shared;
+  }
+
+  /** Keep a copy of an input that timed out; returns the copy, or null if it could not be kept */
+  public synchronized Path record(Path input, String engine, Duration timeout) {
+    try {
+      Files.createDirectories(dir);
+      Path copy = dir.resolve(sha256(input) + extension(input));
+      if (!Files.exists(copy)) {
+        Files.copy(input, copy);
+      }
+
+      String line =
+          String.join(
+                  "\t",
+                  Instant.now().toString(),
+                  engine,
+                  timeout.toSeconds() + "s",
+                  copy.getFileName().toString(),
+                  input.toAbsolutePath().toString())
+              + "\n";
+      Files.writeString(
+          dir.resolve("quarantine.log"),
+          line,
+          StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+      System.out.println("Quarantined " + input + " as " + copy);
+      return copy;
+
+    } catch (Exception e) {
+      System.out.println("Could not quarantine " + input + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  public Path getDirectory() {
+    return dir;
+  }
+
+  private static String sha256(Path file) throws Exception {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private static String extension(Path file) {
+    String name = file.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    return dot >= 0 ? name.substring(dot) : "";
+  }
+}
@@ -0,0 +1,109 @@
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Timing and allocation of one conversion, per {@link ConversionStage} and in total, with the
+ * document features recorded while it ran. Stage figures exclude nested stages, so a chart rendered
+ * during layout counts as chart rendering only; whatever ran outside any stage is only in the
+ * totals. CPU time and allocation are for the converting thread and are 0 when the JVM cannot
+ * measure them.
+ */
+public class ConversionRecord {
+
+  private final String engine;
+  private final String document;
+  private final long wallNanos;
+  private final long cpuNanos;
+  private final long allocatedBytes;
+  private final long[] stageWallNanos;
+  private final long[] stageCpuNanos;
+  private final long[] stageAllocatedBytes;
+  private final Map<String, Long> features;
+
+  ConversionRecord(
+      String engine,
+      String document,
+      long wallNanos,
+      long cpuNanos,
+      long allocatedBytes,
+      long[] stageWallNanos,
+      long[] stageCpuNanos,
+      long[] stageAllocatedBytes,
+      Map<String, Long> features) {
+    this.engine = engine;
+    this.document = document;
+    this.wallNanos = wallNanos;
+    this.cpuNanos = cpuNanos;
+    this.allocatedBytes = allocatedBytes;
+    this.stageWallNanos = stageWallNanos;
+    this.stageCpuNanos = stageCpuNanos;
+    this.stageAllocatedBytes = stageAllocatedBytes;
+    this.features = Collections.unmodifiableMap(features);
+  }
+
+  /** Engine that did the work, the innermost converter when one delegates to another */
+  public String getEngine() {
+    return engine;
+  }
+
+  /** File name of the input, or "stream" */
+  public String getDocument() {
+    return document;
+  }
+
+  public long getWallNanos() {
+    return wallNanos;
+  }
+
+  public long getCpuNanos() {
+    return cpuNanos;
+  }
+
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public long getWallNanos(ConversionStage stage) {
+    return stageWallNanos[stage.ordinal()];
+  }
+
+  public long getCpuNanos(ConversionStage stage) {
+    return stageCpuNanos[stage.ordinal()];
+  }
+
+  public long getAllocatedBytes(ConversionStage stage) {
+    return stageAllocatedBytes[stage.ordinal()];
+  }
+
+  /** Features such as bytes, paragraphs, tables, charts and pictures, by name */
+  public Map<String, Long> getFeatures() {
+    return features;
+  }
+
+  /** One line with wall time, CPU time and allocation in total and for each stage that ran */
+  @Override
+  public String toString() {
+    StringBuilder text =
+        new StringBuilder(engine)
+            .append(' ')
+            .append(document)
+            .append(
+                String.format(
+                    " total=%dms/%dms/%dKB",
+                    wallNanos / 1_000_000, cpuNanos / 1_000_000, allocatedBytes / 1024));
+    for (ConversionStage stage : ConversionStage.values()) {
+      int i = stage.ordinal();
+      if (stageWallNanos[i] > 0) {
+        text.append(
+            String.format(
+                " %s=%dms/%dms/%dKB",
+                stage.name().toLowerCase(),
+                stageWallNanos[i] / 1_000_000,
+                stageCpuNanos[i] / 1_000_000,
+                stageAllocatedBytes[i] / 1024));
+      }
+    }
+    features.forEach((name, value) -> text.append(' ').append(name).append('=').append(value));
+    return text.toString();
+  }
+}
@@ -0,0 +1,475 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Conversion service on the JDK's built-in HTTP server, for running the converters without a
+ * servlet container.
+ *
+ * <ul>
+ *   <li>{@code POST /convert} takes a .doc or .docx as the request body and answers with the PDF.
+ *       An {@code engine} query parameter picks one of the router's engines; without it, or with
+ *       {@code engine=auto}, the router's rules pick one from the document's features.
+ *   <li>{@code GET /metrics} reports admission counters and conversion times per engine in the
+ *       Prometheus text format.
+ * </ul>
+ *
+ * <p>Requests are handled one virtual thread each when the JVM has them (Java 21 and later), so the
+ * many requests waiting on an office process hold no platform threads. Admission is bounded twice:
+ * {@code server.maxInFlight} requests in the server as a whole, and per engine a concurrency limit
+ * from {@code server.engineLimits} (such as {@code xdocreport=8;office=4}, default one per
+ * processor) with at most {@code server.maxWaiting} requests queued behind it. Beyond either bound
+ * a request gets 429 with a Retry-After estimated from the queue and the engine's mean time. When
+ * the request names its engine it is admitted before its body is read. Bodies are spooled to the
+ * temp directory on disk; those over {@code server.maxBodyMb} and documents {@link
+ * DocumentProfiler} rejects get 413, and a malformed Content-Length gets 400.
+ */
+public class ConversionServer implements AutoCloseable {
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final RoutingDocumentConverter router;
+  private final Semaphore inFlight;
+  private final int maxInFlight;
+  private final long maxBodyBytes;
+  private final Map<String, EngineGate> gates = new LinkedHashMap<>();
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder saturated = new LongAdder();
+  private final LongAdder tooLarge = new LongAdder();
+  private final LongAdder badRequests = new LongAdder();
+
+  public ConversionServer(
+      int port,
+      RoutingDocumentConverter router,
+      int maxInFlight,
+      Map<String, Integer> engineLimits,
+      int maxWaiting,
+      long maxBodyBytes)
+      throws IOException {
+    this.router = router;
+    this.maxInFlight = maxInFlight;
+    this.inFlight = new Semaphore(maxInFlight);
+    this.maxBodyBytes = maxBodyBytes;
+
+    int processors = Runtime.getRuntime().availableProcessors();
+    for (String engine : router.getEngineNames()) {
+      gates.put(
+          engine,
+          new EngineGate(engine, engineLimits.getOrDefault(engine, processors), maxWaiting));
+    }
+
+    executor = newRequestExecutor();
+    server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.setExecutor(executor);
+    server.createContext("/convert", this::handleConvert);
+    server.createContext("/metrics", this::handleMetrics);
+  }
+
+  /** Server configured from the {@code server.*} and {@code router.rules} system properties */
+  public static ConversionServer fromSystemProperties() throws IOException {
+    Map<String, Integer> limits = new HashMap<>();
+    for (String limit : System.getProperty("server.engineLimits", "").split(";")) {
+      if (!limit.isBlank()) {
+        String[] parts = limit.split("=", 2);
+        if (parts.length != 2) {
+          throw new IllegalArgumentException("Engine limit needs engine=count: " + limit);
+        }
+        limits.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+      }
+    }
+
+    return new ConversionServer(
+        Integer.getInteger("server.port", 8080),
+        RoutingDocumentConverter.fromSystemProperties(),
+        Integer.getInteger("server.maxInFlight", 2000),
+        limits,
+        Integer.getInteger("server.maxWaiting", 500),
+        Long.getLong("server.maxBodyMb", 512L) * 1024 * 1024);
+  }
+
+  /**
+   * One virtual thread per request where available. The build targets Java 17, so the factory is
+   * looked up at run time, and older JVMs get a cached pool of platform threads instead.
+   */
+  private static ExecutorService newRequestExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      System.out.println("Virtual threads need Java 21, using a cached thread pool instead");
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  public void start() {
+    // The metrics report conversion times from the histogram sink
+    if (ConversionTrace.getSink() == null) {
+      ConversionTrace.setSink(HistogramSink.shared());
+    }
+    server.start();
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /** Stop accepting requests, giving those in flight a second to finish */
+  @Override
+  public void close() {
+    server.stop(1);
+    executor.shutdown();
+  }
+
+  private void handleConvert(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Allow", "POST");
+        send(exchange, 405, "Use POST with the document as the body");
+        return;
+      }
+      requests.increment();
+
+      if (!inFlight.tryAcquire()) {
+        saturated.increment();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        send(exchange, 429, "Too many requests in flight");
+        return;
+      }
+      try {
+        convert(exchange);
+      } finally {
+        inFlight.release();
+      }
+    }
+  }
+
+  private void convert(HttpExchange exchange) throws IOException {
+    String length = exchange.getRequestHeaders().getFirst("Content-Length");
+    if (length != null) {
+      long bytes;
+      try {
+        bytes = Long.parseLong(length.trim());
+      } catch (NumberFormatException e) {
+        bytes = -1;
+      }
+      if (bytes < 0) {
+        badRequests.increment();
+        send(exchange, 400, "Malformed Content-Length: " + length);
+        return;
+      }
+      if (bytes > maxBodyBytes) {
+        tooLarge.increment();
+        send(exchange, 413, "Body is larger than " + maxBodyBytes + " bytes");
+        return;
+      }
+    }
+
+    String engine = query(exchange).getOrDefault("engine", "auto");
+    if (engine.equals("auto")) {
+      convert(exchange, null);
+      return;
+    }
+
+    // A named engine is admitted before the body is read, so a saturated one costs no spooling
+    EngineGate gate = gates.get(engine);
+    if (gate == null) {
+      badRequests.increment();
+      send(exchange, 400, "Unknown engine " + engine + ", use one of " + gates.keySet());
+      return;
+    }
+    if (!enter(exchange, gate)) {
+      return;
+    }
+    try {
+      convert(exchange, gate);
+    } finally {
+      gate.leave();
+    }
+  }
+
+  /**
+   * Spool the body and convert it, on the engine already admitted to, or with none on the engine
+   * the router picks from the document
+   */
+  private void convert(HttpExchange exchange, EngineGate admitted) throws IOException {
+    // On disk rather than in ScratchSpace, whose tmpfs would hold every waiting body in memory
+    Path dir = Files.createTempDirectory("server");
+    try {
+      Path input = dir.resolve("input");
+      if (!receive(exchange.getRequestBody(), input)) {
+        tooLarge.increment();
+        send(exchange, 413, "Body is larger than " + maxBodyBytes + " bytes");
+        return;
+      }
+
+      DocumentFormat format;
+      try {
+        format = DocumentFormat.resolve(input.toFile(), ConversionOptions.create());
+      } catch (IllegalArgumentException e) {
+        badRequests.increment();
+        send(exchange, 415, e.getMessage());
+        return;
+      }
+      // Office engines go by the file extension
+      input =
+          Files.move(input, dir.resolve(format == DocumentFormat.DOC ? "input.doc" : "input.docx"));
+      ConversionOptions options = ConversionOptions.create().sourceFormat(format);
+
+      DocumentProfile profile;
+      String engine = admitted != null ? admitted.name : null;
+      try {
+        profile = DocumentProfiler.profile(input.toFile());
+        if (engine == null) {
+          engine = router.route(input.toFile());
+        }
+      } catch (IOException e) {
+        badRequests.increment();
+        send(exchange, 415, "Cannot read the document: " + e.getMessage());
+        return;
+      }
+      EngineGate gate = admitted != null ? admitted : gates.get(engine);
+      if (gate == null) {
+        badRequests.increment();
+        send(exchange, 400, "Unknown engine " + engine + ", use one of " + gates.keySet());
+        return;
+      }
+
+      // The heap limit only matters to engines that load the document into this JVM
+      String rejection =
+          DocumentProfiler.rejectionReason(profile, router.getEngine(engine).isInProcess());
+      if (rejection != null) {
+        tooLarge.increment();
+        send(exchange, 413, rejection);
+        return;
+      }
+
+      if (admitted == null && !enter(exchange, gate)) {
+        return;
+      }
+      Path pdf = dir.resolve("output.pdf");
+      try {
+        // Blocks this request's thread, not a platform thread when it is virtual
+        gate.running.acquireUninterruptibly();
+        try (OutputStream out = Files.newOutputStream(pdf)) {
+          router.getEngine(engine).convert(input.toFile(), out, options);
+        } finally {
+          gate.running.release();
+        }
+        gate.completed.increment();
+      } catch (Exception e) {
+        gate.failed.increment();
+        e.printStackTrace();
+        send(exchange, 500, "Conversion failed: " + e.getMessage());
+        return;
+      } finally {
+        if (admitted == null) {
+          gate.leave();
+        }
+      }
+
+      exchange.getResponseHeaders().set("Content-Type", "application/pdf");
+      exchange.getResponseHeaders().set("X-Engine", engine);
+      exchange.sendResponseHeaders(200, Files.size(pdf));
+      try (OutputStream body = exchange.getResponseBody()) {
+        Files.copy(pdf, body);
+      }
+    } finally {
+      ScratchSpace.delete(dir);
+    }
+  }
+
+  /** Admit a request to an engine, or answer 429 with a Retry-After and return false */
+  private boolean enter(HttpExchange exchange, EngineGate gate) throws IOException {
+    if (gate.tryEnter()) {
+      return true;
+    }
+    saturated.increment();
+    exchange.getResponseHeaders().set("Retry-After", Long.toString(retryAfterSeconds(gate)));
+    send(exchange, 429, "Engine " + gate.name + " is saturated");
+    return false;
+  }
+
+  /** Spool the body to a file, stopping with false once it exceeds the size limit */
+  private boolean receive(InputStream body, Path target) throws IOException {
+    try (InputStream in = body;
+        OutputStream out = Files.newOutputStream(target)) {
+      byte[] buffer = new byte[64 * 1024];
+      long copied = 0;
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        copied += read;
+        if (copied > maxBodyBytes) {
+          return false;
+        }
+        out.write(buffer, 0, read);
+      }
+      return true;
+    }
+  }
+
+  /** Time for the requests ahead to drain at the engine's mean conversion time */
+  private long retryAfterSeconds(EngineGate gate) {
+    double meanSeconds = 1;
+    if (ConversionTrace.getSink() instanceof HistogramSink) {
+      HistogramSink.Histogram wall =
+          ((HistogramSink) ConversionTrace.getSink())
+              .getWallNanos(router.getEngine(gate.name).engineId(), null);
+      if (wall != null && wall.getCount() > 0) {
+        meanSeconds = wall.getMean() / 1e9;
+      }
+    }
+    double seconds = (gate.waiting() + 1) * meanSeconds / gate.limit;
+    return Math.max(1, Math.min(300, (long) Math.ceil(seconds)));
+  }
+
+  private static Map<String, String> query(HttpExchange exchange) {
+    Map<String, String> parameters = new HashMap<>();
+    String query = exchange.getRequestURI().getRawQuery();
+    if (query != null) {
+      for (String pair : query.split("&")) {
+        String[] parts = pair.split("=", 2);
+        parameters.put(
+            URLDecoder.decode(parts[0], StandardCharsets.UTF_8),
+            parts.length > 1 ? URLDecoder.decode(parts[1], StandardCharsets.UTF_8) : "");
+      }
+    }
+    return parameters;
+  }
+
+  private void handleMetrics(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      StringBuilder text = new StringBuilder();
+      metric(text, "conversion_requests_total", "", requests.sum());
+      metric(text, "conversion_rejected_total", "{reason=\"saturated\"}", saturated.sum());
+      metric(text, "conversion_rejected_total", "{reason=\"too_large\"}", tooLarge.sum());
+      metric(text, "conversion_rejected_total", "{reason=\"bad_request\"}", badRequests.sum());
+      metric(text, "conversion_in_flight", "", maxInFlight - inFlight.availablePermits());
+      metric(text, "conversion_in_flight_limit", "", maxInFlight);
+
+      for (EngineGate gate : gates.values()) {
+        String engine = "{engine=\"" + gate.name + "\"}";
+        metric(text, "conversion_engine_limit", engine, gate.limit);
+        metric(
+            text,
+            "conversion_engine_running",
+            engine,
+            gate.limit - gate.running.availablePermits());
+        metric(text, "conversion_engine_waiting", engine, gate.waiting());
+        metric(text, "conversion_engine_completed_total", engine, gate.completed.sum());
+        metric(text, "conversion_engine_failed_total", engine, gate.failed.sum());
+        metric(text, "conversion_engine_rejected_total", engine, gate.rejected.sum());
+      }
+
+      if (ConversionTrace.getSink() instanceof HistogramSink) {
+        HistogramSink histograms = (HistogramSink) ConversionTrace.getSink();
+        for (String engine : gates.keySet()) {
+          String engineId = router.getEngine(engine).engineId();
+          stageMetrics(text, engine, "total", histograms.getWallNanos(engineId, null));
+          for (ConversionStage stage : ConversionStage.values()) {
+            stageMetrics(
+                text,
+                engine,
+                stage.name().toLowerCase(Locale.ROOT),
+                histograms.getWallNanos(engineId, stage));
+          }
+        }
+      }
+
+      byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+    }
+  }
+
+  private static void stageMetrics(
+      StringBuilder text, String engine, String stage, HistogramSink.Histogram wall) {
+    if (wall == null) {
+      return;
+    }
+    String labels = "engine=\"" + engine + "\",stage=\"" + stage + "\"";
+    for (int percent : new int[] {50, 90, 99}) {
+      text.append(
+          String.format(
+              "conversion_seconds{%s,quantile=\"0.%d\"} %.6f%n",
+              labels, percent, wall.getPercentile(percent) / 1e9));
+    }
+    metric(text, "conversion_seconds_count", "{" + labels + "}", wall.getCount());
+  }
+
+  private static void metric(StringBuilder text, String name, String labels, long value) {
+    text.append(name).append(labels).append(' ').append(value).append('\n');
+  }
+
+  private static void send(HttpExchange exchange, int status, String message) throws IOException {
+    byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, body.length);
+    exchange.getResponseBody().write(body);
+  }
+
+  /** Concurrency limit of one engine, with a bounded number of requests waiting behind it */
+  private static class EngineGate {
+    final String name;
+    final int limit;
+    final int maxWaiting;
+    final Semaphore running;
+    // Requests running on the engine or waiting for it
+    final AtomicInteger admitted = new AtomicInteger();
+    final LongAdder completed = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+
+    EngineGate(String name, int limit, int maxWaiting) {
+      this.name = name;
+      this.limit = limit;
+      this.maxWaiting = maxWaiting;
+      this.running = new Semaphore(limit, true);
+    }
+
+    boolean tryEnter() {
+      while (true) {
+        int current = admitted.get();
+        if (current >= limit + maxWaiting) {
+          rejected.increment();
+          return false;
+        }
+        if (admitted.compareAndSet(current, current + 1)) {
+          return true;
+        }
+      }
+    }
+
+    void leave() {
+      admitted.decrementAndGet();
+    }
+
+    int waiting() {
+      return Math.max(0, admitted.get() - limit);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    ConversionServer server = fromSystemProperties();
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    server.start();
+    System.out.println("Conversion server listening on port " + server.getPort());
+  }
+}
@@ -0,0 +1,9 @@
+/**
+ * Receives a {@link ConversionRecord} when each traced conversion finishes. Called on the
+ * converting thread, so implementations must be thread-safe and quick.
+ */
+@FunctionalInterface
+public interface ConversionSink {
+
+  void accept(ConversionRecord record);
+}
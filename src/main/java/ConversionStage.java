@@ -0,0 +1,17 @@
+/** Parts of a conversion that {@link ConversionTrace} measures separately */
+public enum ConversionStage {
+  /** Parsing the Word package or OLE2 file */
+  LOAD,
+  /** Reading chart parts and their data */
+  CHART_EXTRACT,
+  /** Drawing charts to images */
+  CHART_RENDER,
+  /** Decoding pictures and adding them to the PDF */
+  IMAGE,
+  /** Laying out text and tables */
+  LAYOUT,
+  /** Finishing the PDF and writing it out */
+  WRITE,
+  /** Waiting for LibreOffice or another external process */
+  EXTERNAL_PROCESS
+}
@@ -0,0 +1,283 @@
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-stage instrumentation for the converters. A converter opens a trace for each conversion and
+ * wraps its work in stages:
+ *
+ * <pre>{@code
+ * try (ConversionTrace trace = ConversionTrace.begin(engineId(), input)) {
+ *   try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LAYOUT)) {
+ *     ...
+ *   }
+ * }
+ * }</pre>
+ *
+ * The trace is kept per thread, so code deep inside a conversion opens stages and records features
+ * without having the trace passed to it. When the trace closes its {@link ConversionRecord} goes to
+ * the sink, and while a Java Flight Recorder recording is on each stage is also committed as one of
+ * the {@link ConversionEvents}. With neither, nothing is measured: {@link #begin} returns a shared
+ * no-op instance, and {@link #stage} finds no trace on the thread and returns a no-op stage.
+ *
+ * <p>The sink is set with {@link #setSink}, or at startup with {@code conversion.trace=histogram}
+ * for {@link HistogramSink#shared()} or {@code conversion.trace=log} to print every record.
+ */
+public final class ConversionTrace implements AutoCloseable {
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final com.sun.management.ThreadMXBean ALLOCATION =
+      THREADS instanceof com.sun.management.ThreadMXBean
+              && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+          ? (com.sun.management.ThreadMXBean) THREADS
+          : null;
+  private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+  private static final ThreadLocal<ConversionTrace> CURRENT = new ThreadLocal<>();
+  private static final AtomicLong IDS = new AtomicLong();
+
+  // Handed out when tracing is off, and for conversions nested in a traced one
+  private static final ConversionTrace NONE = new ConversionTrace(null, null, false);
+  private static final Stage NO_STAGE = new Stage(null, null, null);
+
+  private static volatile ConversionSink sink = enableCounters(fromSystemProperties());
+
+  private final long id;
+  private final String document;
+  // Null when only a JFR recording wants the stages, which then need no counters
+  private final Meter total;
+  private final long[] stageWallNanos = new long[ConversionStage.values().length];
+  private final long[] stageCpuNanos = new long[ConversionStage.values().length];
+  private final long[] stageAllocatedBytes = new long[ConversionStage.values().length];
+  private final Map<String, Long> features = new LinkedHashMap<>();
+  private String engine;
+  private Stage current;
+
+  private ConversionTrace(String engine, String document, boolean measured) {
+    this.id = engine != null ? IDS.incrementAndGet() : 0;
+    this.engine = engine;
+    this.document = document;
+    this.total = measured ? new Meter() : null;
+  }
+
+  private static ConversionSink fromSystemProperties() {
+    String trace = System.getProperty("conversion.trace", "");
+    switch (trace) {
+      case "":
+      case "none":
+        return null;
+      case "histogram":
+        return HistogramSink.shared();
+      case "log":
+        return record -> System.out.println("Conversion trace: " + record);
+      default:
+        System.err.println("Unknown conversion.trace '" + trace + "', tracing is off");
+        return null;
+    }
+  }
+
+  /** Send records to a sink, or stop tracing with null */
+  public static void setSink(ConversionSink sink) {
+    ConversionTrace.sink = enableCounters(sink);
+  }
+
+  private static ConversionSink enableCounters(ConversionSink sink) {
+    if (sink != null) {
+      if (CPU_TIME && !THREADS.isThreadCpuTimeEnabled()) {
+        THREADS.setThreadCpuTimeEnabled(true);
+      }
+      if (ALLOCATION != null && !ALLOCATION.isThreadAllocatedMemoryEnabled()) {
+        ALLOCATION.setThreadAllocatedMemoryEnabled(true);
+      }
+    }
+    return sink;
+  }
+
+  public static ConversionSink getSink() {
+    return sink;
+  }
+
+  /** Whether the current thread is in a traced conversion */
+  public static boolean isActive() {
+    return CURRENT.get() != null;
+  }
+
+  private static boolean isTracing() {
+    return sink != null || ConversionEvents.isEnabled();
+  }
+
+  /** Start tracing a conversion of a file on the current thread */
+  public static ConversionTrace begin(String engine, File input) {
+    if (!isTracing()) {
+      return NONE;
+    }
+    ConversionTrace trace = begin(engine, input.getName());
+    feature("bytes", input.length());
+    return trace;
+  }
+
+  /** Start tracing a conversion of a stream on the current thread */
+  public static ConversionTrace begin(String engine) {
+    return isTracing() ? begin(engine, "stream") : NONE;
+  }
+
+  private static ConversionTrace begin(String engine, String document) {
+    ConversionTrace outer = CURRENT.get();
+    if (outer != null) {
+      // A converter delegating to another: keep one record, named after the one doing the work
+      outer.engine = engine;
+      return NONE;
+    }
+    ConversionTrace trace = new ConversionTrace(engine, document, sink != null);
+    CURRENT.set(trace);
+    return trace;
+  }
+
+  /** Start a stage of the conversion traced on the current thread */
+  public static Stage stage(ConversionStage stage) {
+    ConversionTrace trace = CURRENT.get();
+    if (trace == null) {
+      return NO_STAGE;
+    }
+    trace.current = new Stage(trace, stage, trace.current);
+    return trace.current;
+  }
+
+  /** Record a document feature for the conversion traced on the current thread */
+  public static void feature(String name, long value) {
+    ConversionTrace trace = CURRENT.get();
+    if (trace != null) {
+      trace.features.put(name, value);
+    }
+  }
+
+  /** Finish the conversion and hand its record to the sink */
+  @Override
+  public void close() {
+    if (this == NONE) {
+      return;
+    }
+    CURRENT.remove();
+
+    ConversionSink target = sink;
+    if (total == null || target == null) {
+      return;
+    }
+    try {
+      target.accept(
+          new ConversionRecord(
+              engine,
+              document,
+              total.wallNanos(),
+              total.cpuNanos(),
+              total.allocatedBytes(),
+              stageWallNanos,
+              stageCpuNanos,
+              stageAllocatedBytes,
+              features));
+    } catch (RuntimeException e) {
+      // A broken sink must not fail the conversion
+      e.printStackTrace();
+    }
+  }
+
+  /** A stage of a conversion; close it when the stage is done */
+  public static final class Stage implements AutoCloseable {
+
+    private final ConversionTrace trace;
+    private final ConversionStage stage;
+    private final Stage parent;
+    private final Meter meter;
+    private final ConversionEvents.StageEvent event;
+    // Spent in nested stages, which is not counted again for this one
+    private long nestedWallNanos;
+    private long nestedCpuNanos;
+    private long nestedAllocatedBytes;
+
+    private Stage(ConversionTrace trace, ConversionStage stage, Stage parent) {
+      this.trace = trace;
+      this.stage = stage;
+      this.parent = parent;
+      this.meter = trace != null && trace.total != null ? new Meter() : null;
+
+      if (trace != null && ConversionEvents.isEnabled(stage)) {
+        ConversionEvents.StageEvent event = ConversionEvents.create(stage);
+        event.begin();
+        this.event = event;
+      } else {
+        this.event = null;
+      }
+    }
+
+    @Override
+    public void close() {
+      if (trace == null) {
+        return;
+      }
+      if (event != null) {
+        event.end();
+        if (event.shouldCommit()) {
+          // JFR durations include nested stages, which show as events inside this one
+          event.conversionId = trace.id;
+          event.document = trace.document;
+          event.engine = trace.engine;
+          event.bytes = trace.features.getOrDefault("bytes", 0L);
+          event.paragraphs = trace.features.getOrDefault("paragraphs", 0L);
+          event.tables = trace.features.getOrDefault("tables", 0L);
+          event.charts = trace.features.getOrDefault("charts", 0L);
+          event.pictures = trace.features.getOrDefault("pictures", 0L);
+          event.commit();
+        }
+      }
+      trace.current = parent;
+      if (meter == null) {
+        return;
+      }
+
+      long wall = meter.wallNanos();
+      long cpu = meter.cpuNanos();
+      long allocated = meter.allocatedBytes();
+
+      int i = stage.ordinal();
+      trace.stageWallNanos[i] += wall - nestedWallNanos;
+      trace.stageCpuNanos[i] += cpu - nestedCpuNanos;
+      trace.stageAllocatedBytes[i] += allocated - nestedAllocatedBytes;
+      if (parent != null) {
+        parent.nestedWallNanos += wall;
+        parent.nestedCpuNanos += cpu;
+        parent.nestedAllocatedBytes += allocated;
+      }
+    }
+  }
+
+  /** Wall time, thread CPU time and thread allocation since it was created, 0 if unmeasurable */
+  private static final class Meter {
+
+    private final long wallStart = System.nanoTime();
+    private final long cpuStart = threadCpuNanos();
+    private final long allocatedStart = threadAllocatedBytes();
+
+    private static long threadCpuNanos() {
+      return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long threadAllocatedBytes() {
+      return ALLOCATION != null ? ALLOCATION.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    long wallNanos() {
+      return System.nanoTime() - wallStart;
+    }
+
+    long cpuNanos() {
+      return cpuStart >= 0 ? threadCpuNanos() - cpuStart : 0;
+    }
+
+    long allocatedBytes() {
+      return allocatedStart >= 0 ? threadAllocatedBytes() - allocatedStart : 0;
+    }
+  }
+}
@@ -0,0 +1,419 @@
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.apache.poi.util.Units;
+import org.apache.poi.xddf.usermodel.chart.AxisPosition;
+import org.apache.poi.xddf.usermodel.chart.BarDirection;
+import org.apache.poi.xddf.usermodel.chart.ChartTypes;
+import org.apache.poi.xddf.usermodel.chart.XDDFBarChartData;
+import org.apache.poi.xddf.usermodel.chart.XDDFChartData;
+import org.apache.poi.xddf.usermodel.chart.XDDFDataSourcesFactory;
+import org.apache.poi.xwpf.usermodel.Document;
+import org.apache.poi.xwpf.usermodel.XWPFChart;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPageMar;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPageSz;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSectPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTblGrid;
+
+/**
+ * Makes synthetic Word documents for scale and load testing. A {@link CorpusSpec} sets the number
+ * of paragraphs, tables, charts and images, which are spread evenly through the text, and its seed
+ * makes the content reproducible: the same spec gives the same parts, only the zip entry times
+ * differ. The .doc variant is the DOCX saved as Word 97 by LibreOffice, since POI cannot write .doc
+ * files from scratch.
+ *
+ * <p>{@link #main} writes a corpus in the mix we see in production: mostly short letters, some
+ * reports with tables and charts, a few image-heavy catalogues and the odd huge document, from
+ * about 10 KB to a few hundred MB.
+ */
+public class CorpusGenerator {
+
+  private static final String[] WORDS = {
+    "the",
+    "invoice",
+    "customer",
+    "agreement",
+    "report",
+    "quarter",
+    "revenue",
+    "policy",
+    "account",
+    "service",
+    "delivery",
+    "contract",
+    "summary",
+    "project",
+    "order",
+    "payment",
+    "total",
+    "period",
+    "review",
+    "update",
+    "meeting",
+    "schedule",
+    "budget",
+    "forecast",
+    "growth",
+    "region",
+    "market",
+    "product",
+    "team",
+    "result",
+    "analysis",
+    "and",
+    "of",
+    "for",
+    "with",
+    "to",
+    "in",
+    "on",
+    "by"
+  };
+
+  // Fixed timestamp for the package properties, so equal specs give equal bytes
+  private static final Date EPOCH = new Date(0);
+
+  // Text width between one inch margins on A4, in twentieths of a point
+  private static final int TEXT_WIDTH_TWIPS = 9026;
+
+  /** Write the document for a spec as DOCX */
+  public static void writeDocx(CorpusSpec spec, OutputStream out) throws IOException {
+    Random random = new Random(spec.getSeed());
+
+    try (XWPFDocument document = new XWPFDocument()) {
+      // xdocreport cannot lay out a document without styles and a page size
+      document.createStyles();
+      document.getProperties().getCoreProperties().setCreated(Optional.of(EPOCH));
+      document.getProperties().getCoreProperties().setModified(Optional.of(EPOCH));
+
+      int[] tablesAt = spread(spec.getTables(), spec.getParagraphs());
+      int[] chartsAt = spread(spec.getCharts(), spec.getParagraphs());
+      int[] imagesAt = spread(spec.getImages(), spec.getParagraphs());
+      int table = 0;
+      int chart = 0;
+      int image = 0;
+
+      for (int i = 0; i < spec.getParagraphs(); i++) {
+        addParagraph(document, random, i);
+        while (table < tablesAt.length && tablesAt[table] == i) {
+          addTable(document, random, spec.getTableRows(), spec.getTableColumns());
+          table++;
+        }
+        while (chart < chartsAt.length && chartsAt[chart] == i) {
+          addChart(document, random, chart++, spec.getChartPoints());
+        }
+        while (image < imagesAt.length && imagesAt[image] == i) {
+          addImage(document, random, image++, spec.getImageWidth(), spec.getImageHeight());
+        }
+      }
+
+      addSection(document);
+      document.write(out);
+    } catch (Exception e) {
+      throw e instanceof IOException ? (IOException) e : new IOException(e);
+    }
+  }
+
+  /**
+   * Write the document for a spec as .doc, converting the DOCX with the office binary from {@code
+   * libreoffice.soffice}, which is killed after {@code libreoffice.timeoutSeconds}
+   */
+  public static void writeDoc(CorpusSpec spec, Path target) throws Exception {
+    Path dir = ScratchSpace.createTempDirectory("corpus-doc");
+    try {
+      Path docx = dir.resolve("document.docx");
+      try (OutputStream out = Files.newOutputStream(docx)) {
+        writeDocx(spec, out);
+      }
+
+      ExternalProcess.Result result =
+          ExternalProcess.run(
+              List.of(
+                  System.getProperty("libreoffice.soffice", "soffice"),
+                  "-env:UserInstallation=" + dir.resolve("profile").toUri(),
+                  "--headless",
+                  "--convert-to",
+                  "doc:MS Word 97",
+                  "--outdir",
+                  dir.toString(),
+                  docx.toString()),
+              LibreOfficeWorkerPool.TIMEOUT_PER_FILE,
+              null);
+      if (result.isTimedOut()) {
+        throw new IOException(
+            "LibreOffice did not save the document as .doc within "
+                + LibreOfficeWorkerPool.TIMEOUT_PER_FILE.toSeconds()
+                + "s");
+      }
+
+      Path doc = dir.resolve("document.doc");
+      if (result.getExitCode() != 0 || !Files.exists(doc)) {
+        throw new IOException("LibreOffice could not save the document as .doc");
+      }
+      Files.move(doc, target, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      ScratchSpace.delete(dir);
+    }
+  }
+
+  /** Spec for the index-th document of a production-like corpus */
+  public static CorpusSpec mix(long seed, int index) {
+    Random random = new Random(seed * 31 + index);
+    CorpusSpec spec = CorpusSpec.create().seed(seed * 1_000_003 + index);
+    int kind = random.nextInt(100);
+
+    if (kind < 60) {
+      // Letter or memo with a letterhead logo, 10 to 50 KB
+      return spec.paragraphs(between(random, 20, 80))
+          .tables(random.nextInt(2), 4, 3)
+          .images(1, between(random, 300, 600), 150);
+    } else if (kind < 85) {
+      // Report with tables and charts, a few hundred KB to a few MB
+      return spec.paragraphs(between(random, 200, 1500))
+          .tables(between(random, 5, 20), 8, 5)
+          .charts(between(random, 1, 6), between(random, 12, 60))
+          .images(between(random, 1, 4), 1024, 768);
+    } else if (kind < 97) {
+      // Image-heavy catalogue, tens of MB
+      return spec.paragraphs(between(random, 50, 200))
+          .tables(between(random, 2, 5), 10, 4)
+          .images(between(random, 20, 80), 1600, 1200);
+    } else {
+      // Huge document, 100 to 500 MB
+      return spec.paragraphs(between(random, 20_000, 100_000))
+          .tables(between(random, 100, 500), 20, 6)
+          .charts(between(random, 10, 30), between(random, 1000, 5000))
+          .images(between(random, 250, 1200), 2400, 1800);
+    }
+  }
+
+  private static int between(Random random, int min, int max) {
+    return min + random.nextInt(max - min + 1);
+  }
+
+  /** Paragraph indexes after which each of count items goes, evenly spaced */
+  private static int[] spread(int count, int paragraphs) {
+    int[] at = new int[count];
+    for (int i = 0; i < count; i++) {
+      at[i] = (int) ((long) (i + 1) * paragraphs / (count + 1));
+      at[i] = Math.min(Math.max(at[i], 0), Math.max(paragraphs - 1, 0));
+    }
+    return at;
+  }
+
+  private static void addParagraph(XWPFDocument document, Random random, int index) {
+    XWPFParagraph paragraph = document.createParagraph();
+    XWPFRun run = paragraph.createRun();
+
+    if (index % 15 == 0) {
+      // A heading now and then
+      run.setBold(true);
+      run.setFontSize(14);
+      run.setText(sentence(random, between(random, 2, 6)));
+      return;
+    }
+
+    run.setText(sentence(random, between(random, 5, 80)));
+    if (random.nextInt(4) == 0) {
+      XWPFRun emphasis = paragraph.createRun();
+      emphasis.setItalic(true);
+      emphasis.setText(" " + sentence(random, between(random, 2, 10)));
+    }
+  }
+
+  private static String sentence(Random random, int words) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      String word = WORDS[random.nextInt(WORDS.length)];
+      if (i == 0) {
+        text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+      } else {
+        text.append(' ').append(word);
+      }
+    }
+    return text.append('.').toString();
+  }
+
+  private static void addTable(XWPFDocument document, Random random, int rows, int columns) {
+    XWPFTable table = document.createTable(rows, columns);
+    CTTblGrid grid = table.getCTTbl().addNewTblGrid();
+    for (int column = 0; column < columns; column++) {
+      grid.addNewGridCol().setW(BigInteger.valueOf(TEXT_WIDTH_TWIPS / columns));
+    }
+
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        String text =
+            row == 0
+                ? WORDS[random.nextInt(WORDS.length)]
+                : String.format(Locale.ROOT, "%.2f", random.nextDouble() * 10_000);
+        table.getRow(row).getCell(column).setText(text);
+      }
+    }
+  }
+
+  private static void addChart(XWPFDocument document, Random random, int index, int points)
+      throws Exception {
+    XWPFRun run = document.createParagraph().createRun();
+    XWPFChart chart = document.createChart(run, Units.toEMU(450), Units.toEMU(300));
+    chart.setTitleText("Chart " + (index + 1));
+    chart.setTitleOverlay(false);
+
+    String[] categories = new String[points];
+    Double[] values = new Double[points];
+    double value = 100;
+    for (int i = 0; i < points; i++) {
+      categories[i] = "P" + (i + 1);
+      value = Math.max(0, value + random.nextGaussian() * 10);
+      values[i] = Math.round(value * 100) / 100.0;
+    }
+
+    XDDFChartData data;
+    switch (index % 3) {
+      case 0:
+        data =
+            chart.createData(
+                ChartTypes.BAR,
+                chart.createCategoryAxis(AxisPosition.BOTTOM),
+                chart.createValueAxis(AxisPosition.LEFT));
+        ((XDDFBarChartData) data).setBarDirection(BarDirection.COL);
+        break;
+      case 1:
+        data =
+            chart.createData(
+                ChartTypes.LINE,
+                chart.createCategoryAxis(AxisPosition.BOTTOM),
+                chart.createValueAxis(AxisPosition.LEFT));
+        break;
+      default:
+        data = chart.createData(ChartTypes.PIE, null, null);
+        break;
+    }
+    data.addSeries(
+            XDDFDataSourcesFactory.fromArray(categories), XDDFDataSourcesFactory.fromArray(values))
+        .setTitle("Series " + (index + 1), null);
+    chart.plot(data);
+  }
+
+  private static void addImage(
+      XWPFDocument document, Random random, int index, int width, int height) throws Exception {
+    XWPFRun run = document.createParagraph().createRun();
+    byte[] jpeg = photo(random, width, height);
+    // Scale to the text width, keeping the aspect ratio
+    double points = Math.min(width * 0.75, 450);
+    run.addPicture(
+        new ByteArrayInputStream(jpeg),
+        Document.PICTURE_TYPE_JPEG,
+        "image" + (index + 1) + ".jpg",
+        Units.toEMU(points),
+        Units.toEMU(points * height / width));
+  }
+
+  /** A gradient with shapes and grain, which compresses about as well as a photograph */
+  private static byte[] photo(Random random, int width, int height) throws IOException {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    try {
+      g.setPaint(
+          new GradientPaint(
+              0, 0, new Color(random.nextInt()), width, height, new Color(random.nextInt())));
+      g.fillRect(0, 0, width, height);
+      for (int i = 0; i < 12; i++) {
+        g.setColor(new Color(random.nextInt(0x1000000) | 0x80000000, true));
+        g.fillOval(
+            random.nextInt(width),
+            random.nextInt(height),
+            between(random, width / 20, width / 3),
+            between(random, height / 20, height / 3));
+      }
+    } finally {
+      g.dispose();
+    }
+
+    int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    for (int i = 0; i < pixels.length; i++) {
+      int grain = random.nextInt(17) - 8;
+      int rgb = pixels[i];
+      int r = clamp(((rgb >> 16) & 0xff) + grain);
+      int gr = clamp(((rgb >> 8) & 0xff) + grain);
+      int b = clamp((rgb & 0xff) + grain);
+      pixels[i] = (r << 16) | (gr << 8) | b;
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(image, "jpg", out);
+    return out.toByteArray();
+  }
+
+  private static int clamp(int value) {
+    return Math.min(255, Math.max(0, value));
+  }
+
+  /** A4 page with one inch margins, as Word writes it */
+  private static void addSection(XWPFDocument document) {
+    CTSectPr section = document.getDocument().getBody().addNewSectPr();
+    CTPageSz page = section.addNewPgSz();
+    page.setW(BigInteger.valueOf(11906));
+    page.setH(BigInteger.valueOf(16838));
+    CTPageMar margins = section.addNewPgMar();
+    margins.setTop(BigInteger.valueOf(1440));
+    margins.setBottom(BigInteger.valueOf(1440));
+    margins.setLeft(BigInteger.valueOf(1440));
+    margins.setRight(BigInteger.valueOf(1440));
+  }
+
+  /**
+   * Usage: {@code CorpusGenerator <outDir> [count] [seed] [--doc]}. Each document is built in
+   * memory, so give the JVM about twice the size of the largest one, 1 GB or more for the huge
+   * ones.
+   */
+  public static void main(String[] args) throws Exception {
+    Path outDir = Paths.get(args.length > 0 ? args[0] : "corpus");
+    int count = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+    boolean doc = List.of(args).contains("--doc");
+    Files.createDirectories(outDir);
+
+    List<String> failures = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      CorpusSpec spec = mix(seed, i);
+      String name = String.format("doc-%05d", i);
+      Path docx = outDir.resolve(name + ".docx");
+      try (OutputStream out = Files.newOutputStream(docx)) {
+        writeDocx(spec, out);
+      }
+      System.out.println(docx + " (" + Files.size(docx) / 1024 + " KB): " + spec);
+
+      if (doc) {
+        try {
+          writeDoc(spec, outDir.resolve(name + ".doc"));
+        } catch (Exception e) {
+          failures.add(name + ".doc: " + e.getMessage());
+        }
+      }
+    }
+    failures.forEach(System.err::println);
+  }
+}
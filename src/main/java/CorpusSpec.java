@@ -0,0 +1,106 @@
+/** Shape of a synthetic document made by {@link CorpusGenerator} */
+public class CorpusSpec {
+
+  private long seed = 1;
+  private int paragraphs = 20;
+  private int tables;
+  private int tableRows = 5;
+  private int tableColumns = 4;
+  private int charts;
+  private int chartPoints = 12;
+  private int images;
+  private int imageWidth = 800;
+  private int imageHeight = 600;
+
+  public static CorpusSpec create() {
+    return new CorpusSpec();
+  }
+
+  /** Seed for the text, values and pixels, so the same spec always makes the same document */
+  public CorpusSpec seed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  public CorpusSpec paragraphs(int paragraphs) {
+    this.paragraphs = paragraphs;
+    return this;
+  }
+
+  public CorpusSpec tables(int count, int rows, int columns) {
+    this.tables = count;
+    this.tableRows = rows;
+    this.tableColumns = columns;
+    return this;
+  }
+
+  public CorpusSpec charts(int count, int points) {
+    this.charts = count;
+    this.chartPoints = points;
+    return this;
+  }
+
+  /** Photo-like JPEG images of the given pixel size */
+  public CorpusSpec images(int count, int width, int height) {
+    this.images = count;
+    this.imageWidth = width;
+    this.imageHeight = height;
+    return this;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public int getParagraphs() {
+    return paragraphs;
+  }
+
+  public int getTables() {
+    return tables;
+  }
+
+  public int getTableRows() {
+    return tableRows;
+  }
+
+  public int getTableColumns() {
+    return tableColumns;
+  }
+
+  public int getCharts() {
+    return charts;
+  }
+
+  public int getChartPoints() {
+    return chartPoints;
+  }
+
+  public int getImages() {
+    return images;
+  }
+
+  public int getImageWidth() {
+    return imageWidth;
+  }
+
+  public int getImageHeight() {
+    return imageHeight;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "seed=%d paragraphs=%d tables=%dx%dx%d charts=%dx%d images=%dx%dx%d",
+        seed,
+        paragraphs,
+        tables,
+        tableRows,
+        tableColumns,
+        charts,
+        chartPoints,
+        images,
+        imageWidth,
+        imageHeight);
+  }
+}
@@ -0,0 +1,61 @@
+import java.io.InputStream;
+import org.apache.poi.hwpf.HWPFDocument;
+import org.apache.poi.hwpf.extractor.WordExtractor;
+import org.apache.poi.hwpf.usermodel.Paragraph;
+import org.apache.poi.hwpf.usermodel.Range;
+
+/**
+ * Hands the paragraphs of a .doc file to a consumer one at a time. As with DocxTextReader, each
+ * table row becomes one paragraph with its cells separated by tabs.
+ */
+public class DocTextReader {
+
+  public static void read(InputStream doc, ParagraphConsumer consumer) throws Exception {
+    try (HWPFDocument document = new HWPFDocument(doc)) {
+      read(document, consumer);
+    }
+  }
+
+  public static void read(HWPFDocument document, ParagraphConsumer consumer) throws Exception {
+    Range range = document.getRange();
+    StringBuilder row = new StringBuilder();
+
+    for (int i = 0; i < range.numParagraphs(); i++) {
+      Paragraph paragraph = range.getParagraph(i);
+      String text = clean(paragraph.text());
+
+      if (!paragraph.isInTable()) {
+        consumer.accept(text);
+      } else if (paragraph.isTableRowEnd()) {
+        consumer.accept(row.toString());
+        row.setLength(0);
+      } else {
+        if (row.length() > 0) {
+          row.append('\t');
+        }
+        row.append(text);
+      }
+    }
+  }
+
+  /** Drop field codes, the paragraph or cell mark and the control characters Word uses */
+  private static String clean(String paragraph) {
+    String text = WordExtractor.stripFields(paragraph);
+    int end = text.length();
+    while (end > 0 && (text.charAt(end - 1) == '\r' || text.charAt(end - 1) == '\u0007')) {
+      end--;
+    }
+
+    StringBuilder cleaned = new StringBuilder(end);
+    for (int i = 0; i < end; i++) {
+      char c = text.charAt(i);
+      if (c == '\u000b' || c == '\r' || c == '\n') {
+        // Manual line break
+        cleaned.append('\n');
+      } else if (c >= ' ' || c == '\t') {
+        cleaned.append(c);
+      }
+    }
+    return cleaned.toString();
+  }
+}
@@ -1,6 +1,21 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class DockerLibreOfficeConverter {
+public class DockerLibreOfficeConverter implements DocumentConverter {
+
+  static final String IMAGE = "linuxserver/libreoffice";
+
+  private static final AtomicLong RUNS = new AtomicLong();
+
+  private static LibreOfficeProfileManager profiles;
 
   public static void main(String[] args) {
     convertToPdf(
@@ -8,23 +23,111 @@ public class DockerLibreOfficeConverter {
         "/Users/linh.nguyen/Desktop/personal/doc-to-pdf");
   }
 
-  public static void convertToPdf(String inputPath, String outputPath) {
+  /** Stream conversion, staging the document in scratch space mounted into the container */
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    InputStream input = new BufferedInputStream(in);
+    DocumentFormat format = DocumentFormat.resolve(input, options);
+
+    Path dir = ScratchSpace.createTempDirectory("lo-docker-stream");
+    try (ConversionTrace trace = ConversionTrace.begin(engineId())) {
+      Path source = dir.resolve("input." + format.getExtension());
+      Files.copy(input, source);
+      ConversionTrace.feature("bytes", Files.size(source));
+
+      Path outDir = dir.resolve("out");
+      Files.createDirectories(outDir);
+      try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.EXTERNAL_PROCESS)) {
+        if (!convertToPdf(source.toString(), outDir.toString())) {
+          throw new IOException("LibreOffice conversion in docker failed");
+        }
+      }
+      try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.WRITE)) {
+        Files.copy(outDir.resolve("input.pdf"), out);
+      }
+    } finally {
+      ScratchSpace.delete(dir);
+    }
+  }
+
+  /** The office process loads the document, not this JVM */
+  @Override
+  public boolean isInProcess() {
+    return false;
+  }
+
+  /** Profiles seeded inside the container image, mounted into each run at /profile */
+  static synchronized LibreOfficeProfileManager profiles() throws IOException {
+    // Closed along with the container pool, which takes it over
+    if (profiles == null || profiles.isClosed()) {
+      profiles =
+          new LibreOfficeProfileManager(
+              Files.createTempDirectory("lo-docker-profiles"),
+              dir ->
+                  List.of(
+                      System.getProperty("docker.binary", "docker"),
+                      "run",
+                      "--rm",
+                      "-v",
+                      dir + ":/profile",
+                      IMAGE,
+                      "libreoffice",
+                      "-env:UserInstallation=file:///profile",
+                      "--headless",
+                      "--norestore",
+                      "--terminate_after_init"));
+      Runtime.getRuntime().addShutdownHook(new Thread(profiles::close));
+    }
+    return profiles;
+  }
+
+  /**
+   * Convert in a throwaway container, or with {@code -Ddocker.libreoffice.resident=true} in the
+   * shared pool of long-running containers. Either way the conversion is stopped after {@code
+   * libreoffice.timeoutSeconds} and the input quarantined, and interrupting the caller stops it.
+   */
+  public static boolean convertToPdf(String inputPath, String outputPath) {
+    if (Boolean.getBoolean("docker.libreoffice.resident")) {
+      try {
+        return ExternalProcess.await(DockerLibreOfficePool.shared().submit(inputPath, outputPath));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      } catch (Exception e) {
+        e.printStackTrace();
+        return false;
+      }
+    }
+
+    Path profile = null;
     try {
       String inputDir = Paths.get(inputPath).getParent().toString();
       String inputFileName = Paths.get(inputPath).getFileName().toString();
       String outputDir = Paths.get(outputPath).toString();
+      String docker = System.getProperty("docker.binary", "docker");
 
-      ProcessBuilder pb =
-          new ProcessBuilder(
-              "docker",
+      // Private profile per concurrent run, so containers don't share one profile lock
+      profile = profiles().acquire();
+      // Named, so a container that outlives its killed docker client can be removed
+      String name = "doc2pdf-run-" + ProcessHandle.current().pid() + "-" + RUNS.incrementAndGet();
+
+      List<String> command =
+          List.of(
+              docker,
               "run",
               "--rm",
+              "--name",
+              name,
               "-v",
               inputDir + ":/input",
               "-v",
               outputDir + ":/output",
-              "linuxserver/libreoffice",
+              "-v",
+              profile + ":/profile",
+              IMAGE,
               "libreoffice",
+              "-env:UserInstallation=file:///profile",
               "--headless",
               "--convert-to",
               "pdf",
@@ -32,11 +135,47 @@ public class DockerLibreOfficeConverter {
               "/output",
               "/input/" + inputFileName);
 
-      Process process = pb.start();
-      process.waitFor();
+      Duration timeout = LibreOfficeWorkerPool.TIMEOUT_PER_FILE;
+      ExternalProcess.Result result;
+      try {
+        result = ExternalProcess.run(command, timeout, "");
+      } catch (InterruptedException e) {
+        removeContainer(docker, name);
+        throw e;
+      }
+      if (result.isTimedOut()) {
+        removeContainer(docker, name);
+        ConversionQuarantine.shared()
+            .record(Paths.get(inputPath), "DockerLibreOfficeConverter", timeout);
+        System.out.println("Conversion timed out after " + timeout.toSeconds() + "s");
+        return false;
+      }
+
+      int exitCode = result.getExitCode();
+      if (exitCode != 0) {
+        System.out.println("Conversion failed with exit code: " + exitCode);
+      }
+      return exitCode == 0;
 
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
     } catch (Exception e) {
       e.printStackTrace();
+      return false;
+    } finally {
+      if (profile != null) {
+        profiles.release(profile);
+      }
+    }
+  }
+
+  /** Remove a container left running by a docker client that was killed */
+  private static void removeContainer(String docker, String name) {
+    try {
+      ExternalProcess.run(List.of(docker, "rm", "-f", name), Duration.ofMinutes(1), null);
+    } catch (Exception e) {
+      System.out.println("Could not remove container " + name + ": " + e.getMessage());
     }
   }
 }
@@ -0,0 +1,135 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Pool of long-running LibreOffice containers. Containers are started once and fed from a shared
+ * job queue with {@code docker exec}; a container whose office died is restarted before its next
+ * job.
+ *
+ * <p>Defaults can be overridden with the system properties {@code docker.binary} and {@code
+ * docker.libreoffice.containers}. Pointing {@code docker.binary} at {@code scripts/fake-docker}
+ * records the docker commands instead of running them.
+ *
+ * <p>Jobs have the same deadline and cancellation as in {@link LibreOfficeWorkerPool}; a container
+ * whose job timed out or was cancelled is replaced, since its office is still busy with the job.
+ */
+public class DockerLibreOfficePool implements AutoCloseable {
+
+  private static DockerLibreOfficePool shared;
+
+  private final BlockingQueue<CancellableJob<LibreOfficeContainer, Boolean>> queue =
+      new LinkedBlockingQueue<>();
+  private final List<LibreOfficeContainer> containers = new ArrayList<>();
+  private final List<Thread> threads = new ArrayList<>();
+  private final LibreOfficeProfileManager profiles;
+  private final Path workDir;
+  private volatile boolean running = true;
+
+  /** The pool takes over the profile manager and closes it with the containers */
+  public DockerLibreOfficePool(
+      String docker, String image, int size, LibreOfficeProfileManager profiles)
+      throws IOException, InterruptedException {
+    this.profiles = profiles;
+    workDir = ScratchSpace.createTempDirectory("lo-docker-work");
+    String prefix = "doc2pdf-lo-" + ProcessHandle.current().pid() + "-";
+
+    try {
+      for (int i = 0; i < size; i++) {
+        LibreOfficeContainer container =
+            new LibreOfficeContainer(docker, image, prefix + i, workDir, profiles.acquire());
+        // Added first, so a container that failed half way through starting is removed too
+        containers.add(container);
+        container.start();
+
+        Thread thread = new Thread(() -> runContainer(container), "lo-container-" + i);
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+      }
+    } catch (IOException | InterruptedException | RuntimeException e) {
+      // Nobody gets a pool to close, so remove the containers already started
+      close();
+      throw e;
+    }
+  }
+
+  /** Pool configured from system properties, created on first use */
+  public static synchronized DockerLibreOfficePool shared()
+      throws IOException, InterruptedException {
+    if (shared == null) {
+      shared =
+          new DockerLibreOfficePool(
+              System.getProperty("docker.binary", "docker"),
+              DockerLibreOfficeConverter.IMAGE,
+              Integer.getInteger("docker.libreoffice.containers", 2),
+              DockerLibreOfficeConverter.profiles());
+      Runtime.getRuntime().addShutdownHook(new Thread(shared::close));
+    }
+    return shared;
+  }
+
+  /** Queue a conversion at the default timeout */
+  public CompletableFuture<Boolean> submit(String inputPath, String outputDir) {
+    return submit(inputPath, outputDir, LibreOfficeWorkerPool.TIMEOUT_PER_FILE);
+  }
+
+  /**
+   * Queue a conversion; the future completes with true when the PDF was written. An input the
+   * {@link DocumentProfiler} rejects fails before it takes a queue slot.
+   */
+  public CompletableFuture<Boolean> submit(String inputPath, String outputDir, Duration timeout) {
+    if (!running) {
+      throw new IllegalStateException("Container pool is shut down");
+    }
+    String reason = DocumentProfiler.rejectionReason(new File(inputPath), false);
+    if (reason != null) {
+      return CompletableFuture.failedFuture(new IllegalArgumentException(reason));
+    }
+    CancellableJob<LibreOfficeContainer, Boolean> job =
+        new CancellableJob<>(container -> container.convert(inputPath, outputDir, timeout));
+    queue.add(job);
+    return job.getResult();
+  }
+
+  public int size() {
+    return containers.size();
+  }
+
+  private void runContainer(LibreOfficeContainer container) {
+    while (running) {
+      CancellableJob<LibreOfficeContainer, Boolean> job;
+      try {
+        job = queue.take();
+      } catch (InterruptedException e) {
+        break;
+      }
+
+      job.run(container);
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    threads.forEach(Thread::interrupt);
+    containers.forEach(LibreOfficeContainer::stop);
+
+    CancellableJob<LibreOfficeContainer, Boolean> job;
+    while ((job = queue.poll()) != null) {
+      job.getResult().cancel(false);
+    }
+    profiles.close();
+    try {
+      ScratchSpace.delete(workDir);
+    } catch (IOException e) {
+      System.out.println("Could not delete " + workDir + ": " + e.getMessage());
+    }
+  }
+}
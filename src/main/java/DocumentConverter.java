@@ -0,0 +1,36 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Converts a Word document to PDF from a stream to a stream. Implementations leave both streams
+ * open for the caller to close.
+ */
+public interface DocumentConverter {
+
+  void convert(InputStream in, OutputStream out, ConversionOptions options) throws Exception;
+
+  /**
+   * Convert a file. By default it is read as a stream; converters that can read the file with
+   * random access override this.
+   */
+  default void convert(File input, OutputStream out, ConversionOptions options) throws Exception {
+    try (InputStream in = new FileInputStream(input)) {
+      convert(in, out, options);
+    }
+  }
+
+  /**
+   * Whether the engine loads the document into this JVM's heap, so that the profiler's heap limit
+   * applies to it. Engines that hand the document to an office process override this.
+   */
+  default boolean isInProcess() {
+    return true;
+  }
+
+  /** Stable name of the engine, used to tell results of different engines apart */
+  default String engineId() {
+    return getClass().getSimpleName();
+  }
+}
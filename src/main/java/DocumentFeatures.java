@@ -0,0 +1,212 @@
+import java.awt.GraphicsEnvironment;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.poi.util.XMLHelper;
+
+/**
+ * Layout features of a document that decide which engine can convert it faithfully. On top of the
+ * {@link DocumentProfile}, the main document part and the styles are scanned once with StAX for
+ * floating shapes, SmartArt, text boxes, OLE objects, tables and the fonts they name. A .doc is not
+ * scanned and only has its profile.
+ */
+public class DocumentFeatures {
+
+  /** Feature names that routing rules can test */
+  public static final Set<String> NAMES =
+      Set.of(
+          "doc",
+          "sizeMb",
+          "cost",
+          "charts",
+          "images",
+          "spreadsheets",
+          "smartArt",
+          "floatingShapes",
+          "textBoxes",
+          "embeddedObjects",
+          "tables",
+          "fonts",
+          "unavailableFonts");
+
+  private static final XMLInputFactory FACTORY = XMLHelper.newXMLInputFactory();
+
+  private static final String DIAGRAM_URI =
+      "http://schemas.openxmlformats.org/drawingml/2006/diagram";
+
+  private static Set<String> installedFonts;
+
+  private final DocumentProfile profile;
+  private int smartArt;
+  private int floatingShapes;
+  private int textBoxes;
+  private int embeddedObjects;
+  private int tables;
+  private final Set<String> fonts = new TreeSet<>();
+
+  private DocumentFeatures(DocumentProfile profile) {
+    this.profile = profile;
+  }
+
+  public static DocumentFeatures scan(File file) throws IOException {
+    DocumentFeatures features = new DocumentFeatures(DocumentProfiler.profile(file));
+    if (features.profile.getFormat() != DocumentFormat.DOCX) {
+      return features;
+    }
+
+    try (ZipFile zip = new ZipFile(file)) {
+      features.scanPart(zip, DocumentProfiler.mainPart(zip));
+      features.scanPart(zip, "word/styles.xml");
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot scan " + file.getName(), e);
+    }
+    return features;
+  }
+
+  public DocumentProfile getProfile() {
+    return profile;
+  }
+
+  /** Font families named by the document and its styles */
+  public Set<String> getFonts() {
+    return fonts;
+  }
+
+  /**
+   * Named fonts that are not installed, so an in-process engine would substitute them. A name may
+   * list alternatives separated by semicolons, and is available if any of them is installed.
+   */
+  public Set<String> getUnavailableFonts() {
+    Set<String> installed = installedFonts();
+    return fonts.stream()
+        .filter(
+            font ->
+                Arrays.stream(font.split(";"))
+                    .noneMatch(name -> installed.contains(name.trim().toLowerCase(Locale.ROOT))))
+        .collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  /** Value of a feature from {@link #NAMES} */
+  public double get(String name) {
+    switch (name) {
+      case "doc":
+        return profile.getFormat() == DocumentFormat.DOC ? 1 : 0;
+      case "sizeMb":
+        return profile.getUncompressedBytes() / (1024.0 * 1024.0);
+      case "cost":
+        return profile.getCost();
+      case "charts":
+        return profile.getCharts();
+      case "images":
+        return profile.getImages();
+      case "spreadsheets":
+        return profile.getEmbeddedSpreadsheets();
+      case "smartArt":
+        return smartArt;
+      case "floatingShapes":
+        return floatingShapes;
+      case "textBoxes":
+        return textBoxes;
+      case "embeddedObjects":
+        return embeddedObjects;
+      case "tables":
+        return tables;
+      case "fonts":
+        return fonts.size();
+      case "unavailableFonts":
+        return getUnavailableFonts().size();
+      default:
+        throw new IllegalArgumentException("Unknown document feature: " + name);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return NAMES.stream()
+        .sorted()
+        .map(name -> name + "=" + format(get(name)))
+        .collect(Collectors.joining(" "));
+  }
+
+  private static String format(double value) {
+    return value == Math.rint(value) ? Long.toString((long) value) : String.format("%.1f", value);
+  }
+
+  private void scanPart(ZipFile zip, String partName) throws IOException, XMLStreamException {
+    ZipEntry entry = zip.getEntry(partName);
+    if (entry == null) {
+      return;
+    }
+
+    try (InputStream in = zip.getInputStream(entry)) {
+      XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+      try {
+        while (reader.hasNext()) {
+          if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+            startElement(reader);
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    }
+  }
+
+  private void startElement(XMLStreamReader reader) {
+    switch (reader.getLocalName()) {
+      case "anchor":
+        // wp:anchor, a drawing positioned relative to the page instead of the text
+      case "pict":
+        // VML shapes from older documents, which are nearly always positioned
+        floatingShapes++;
+        break;
+      case "graphicData":
+        if (DIAGRAM_URI.equals(reader.getAttributeValue(null, "uri"))) {
+          smartArt++;
+        }
+        break;
+      case "txbxContent":
+        textBoxes++;
+        break;
+      case "object":
+        embeddedObjects++;
+        break;
+      case "tbl":
+        tables++;
+        break;
+      case "rFonts":
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+          // ascii, hAnsi, eastAsia and cs name fonts; the *Theme attributes only point at the theme
+          String attribute = reader.getAttributeLocalName(i);
+          if (!attribute.endsWith("Theme") && !attribute.equals("hint")) {
+            fonts.add(reader.getAttributeValue(i));
+          }
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  private static synchronized Set<String> installedFonts() {
+    if (installedFonts == null) {
+      installedFonts =
+          Arrays.stream(
+                  GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames())
+              .map(name -> name.toLowerCase(Locale.ROOT))
+              .collect(Collectors.toSet());
+    }
+    return installedFonts;
+  }
+}
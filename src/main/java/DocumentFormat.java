@@ -0,0 +1,64 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.poi.poifs.filesystem.FileMagic;
+
+/** Source formats understood by the converters */
+public enum DocumentFormat {
+  DOC("doc"),
+  DOCX("docx");
+
+  private final String extension;
+
+  DocumentFormat(String extension) {
+    this.extension = extension;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+
+  /** Format implied by the file extension, or null if it is neither .doc nor .docx */
+  public static DocumentFormat fromFileName(String fileName) {
+    String name = fileName.toLowerCase();
+    if (name.endsWith(".docx")) {
+      return DOCX;
+    } else if (name.endsWith(".doc")) {
+      return DOC;
+    }
+    return null;
+  }
+
+  /** The format given in the options, sniffed from the input if none was given */
+  public static DocumentFormat resolve(InputStream in, ConversionOptions options)
+      throws IOException {
+    if (options.getSourceFormat() != null) {
+      return options.getSourceFormat();
+    }
+    return detect(in);
+  }
+
+  /** The format given in the options, sniffed from the file if none was given */
+  public static DocumentFormat resolve(File file, ConversionOptions options) throws IOException {
+    if (options.getSourceFormat() != null) {
+      return options.getSourceFormat();
+    }
+    return fromMagic(FileMagic.valueOf(file));
+  }
+
+  /** Sniff the format from the leading bytes; the stream must support mark/reset */
+  public static DocumentFormat detect(InputStream in) throws IOException {
+    return fromMagic(FileMagic.valueOf(in));
+  }
+
+  private static DocumentFormat fromMagic(FileMagic fileMagic) {
+    switch (fileMagic) {
+      case OLE2:
+        return DOC;
+      case OOXML:
+        return DOCX;
+      default:
+        throw new IllegalArgumentException("Unsupported file type: " + fileMagic);
+    }
+  }
+}
@@ -0,0 +1,144 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.poi.hwpf.HWPFDocument;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+/**
+ * Opens Word documents for the POI-based converters. Files are opened read-only with random access
+ * into the zip or OLE2 container, so parts are read when they are used instead of the whole package
+ * being buffered first. Streams have no file behind them and are loaded into memory, except in
+ * large-document mode, where big entries are spilled to temp files instead.
+ */
+public final class DocumentLoader {
+
+  // In large-document mode, stream entries of at least this size are spilled to temp files
+  private static final int SPILL_THRESHOLD_BYTES =
+      Integer.getInteger("docx.spill.thresholdKb", 1024) * 1024;
+  // and no entry may inflate beyond this, so a zip bomb cannot fill the temp directory
+  private static final long LARGE_MAX_ENTRY_BYTES =
+      Long.getLong("docx.largeDocument.maxEntryMb", 1024L) * 1024 * 1024;
+
+  private DocumentLoader() {}
+
+  /** Open a .docx package read-only; revert it rather than close it when done */
+  public static OPCPackage openPackage(File file) throws IOException {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LOAD)) {
+      return OPCPackage.open(file, PackageAccess.READ);
+    } catch (InvalidFormatException e) {
+      throw new IOException("Not a valid DOCX package: " + file, e);
+    }
+  }
+
+  public static XWPFDocument openDocx(File file) throws IOException {
+    OPCPackage pkg = openPackage(file);
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LOAD)) {
+      return traceFeatures(new XWPFDocument(pkg));
+    } catch (IOException | RuntimeException e) {
+      pkg.revert();
+      throw e;
+    }
+  }
+
+  /** Load a .docx from a stream, which is read to the end but left open */
+  public static XWPFDocument openDocx(InputStream in) throws IOException {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LOAD)) {
+      return traceFeatures(new XWPFDocument(CloseShieldInputStream.wrap(in)));
+    }
+  }
+
+  /**
+   * Load a .docx from a stream, spilling large entries to temp files when the options ask for
+   * large-document mode. The split between memory and disk is recorded in the conversion trace.
+   */
+  public static XWPFDocument openDocx(InputStream in, ConversionOptions options)
+      throws IOException {
+    if (!options.isLargeDocument()) {
+      return openDocx(in);
+    }
+
+    InputStream input = FileMagic.prepareToCheckMagic(CloseShieldInputStream.wrap(in));
+    if (FileMagic.valueOf(input) != FileMagic.OOXML) {
+      throw new IOException("Not a valid DOCX package");
+    }
+
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LOAD)) {
+      return openLargeDocx(input);
+    }
+  }
+
+  private static XWPFDocument openLargeDocx(InputStream input) throws IOException {
+    // Every entry is read and placed in memory or a temp file here
+    SpillingZipEntrySource source =
+        new SpillingZipEntrySource(input, SPILL_THRESHOLD_BYTES, LARGE_MAX_ENTRY_BYTES);
+
+    OPCPackage pkg;
+    try {
+      pkg = OPCPackage.open(source);
+    } catch (InvalidFormatException e) {
+      source.close();
+      throw new IOException("Not a valid DOCX package", e);
+    }
+    try {
+      XWPFDocument document = new XWPFDocument(pkg);
+      traceSpill(source.getReport());
+      return traceFeatures(document);
+    } catch (IOException | RuntimeException e) {
+      pkg.revert();
+      throw e;
+    }
+  }
+
+  public static HWPFDocument openDoc(File file) throws IOException {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LOAD)) {
+      POIFSFileSystem fs = new POIFSFileSystem(file, true);
+      try {
+        // Closing the document closes the file system
+        return traceFeatures(new HWPFDocument(fs));
+      } catch (IOException | RuntimeException e) {
+        fs.close();
+        throw e;
+      }
+    }
+  }
+
+  /** Load a .doc from a stream, which is read to the end but left open */
+  public static HWPFDocument openDoc(InputStream in) throws IOException {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LOAD)) {
+      return traceFeatures(new HWPFDocument(CloseShieldInputStream.wrap(in)));
+    }
+  }
+
+  /** Record the element counts of a loaded document when the conversion is traced */
+  private static XWPFDocument traceFeatures(XWPFDocument document) {
+    if (ConversionTrace.isActive()) {
+      ConversionTrace.feature("paragraphs", document.getParagraphs().size());
+      ConversionTrace.feature("tables", document.getTables().size());
+      ConversionTrace.feature("charts", document.getCharts().size());
+      ConversionTrace.feature("pictures", document.getAllPictures().size());
+    }
+    return document;
+  }
+
+  /** Record how much of a package loaded in large-document mode went to memory and to disk */
+  private static void traceSpill(PackageSpillReport report) {
+    ConversionTrace.feature("memoryEntries", report.getMemoryEntries());
+    ConversionTrace.feature("memoryBytes", report.getMemoryBytes());
+    ConversionTrace.feature("diskEntries", report.getDiskEntries());
+    ConversionTrace.feature("diskBytes", report.getDiskBytes());
+  }
+
+  private static HWPFDocument traceFeatures(HWPFDocument document) {
+    if (ConversionTrace.isActive()) {
+      ConversionTrace.feature("paragraphs", document.getRange().numParagraphs());
+      ConversionTrace.feature("pictures", document.getPicturesTable().getAllPictures().size());
+    }
+    return document;
+  }
+}
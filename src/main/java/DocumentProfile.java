@@ -0,0 +1,105 @@
+/**
+ * What a document contains and roughly what converting it will cost, as estimated by {@link
+ * DocumentProfiler} without parsing the document
+ */
+public class DocumentProfile {
+
+  private final DocumentFormat format;
+  private final long fileBytes;
+  private final int entries;
+  private final long uncompressedBytes;
+  private final long xmlBytes;
+  private final int charts;
+  private final int images;
+  private final int embeddedSpreadsheets;
+  private final double cost;
+  private final long estimatedHeapBytes;
+
+  DocumentProfile(
+      DocumentFormat format,
+      long fileBytes,
+      int entries,
+      long uncompressedBytes,
+      long xmlBytes,
+      int charts,
+      int images,
+      int embeddedSpreadsheets,
+      double cost,
+      long estimatedHeapBytes) {
+    this.format = format;
+    this.fileBytes = fileBytes;
+    this.entries = entries;
+    this.uncompressedBytes = uncompressedBytes;
+    this.xmlBytes = xmlBytes;
+    this.charts = charts;
+    this.images = images;
+    this.embeddedSpreadsheets = embeddedSpreadsheets;
+    this.cost = cost;
+    this.estimatedHeapBytes = estimatedHeapBytes;
+  }
+
+  public DocumentFormat getFormat() {
+    return format;
+  }
+
+  public long getFileBytes() {
+    return fileBytes;
+  }
+
+  /** Zip entries in the package; 0 for a .doc */
+  public int getEntries() {
+    return entries;
+  }
+
+  /** Sum of the uncompressed entry sizes, or the file size for a .doc */
+  public long getUncompressedBytes() {
+    return uncompressedBytes;
+  }
+
+  /** Uncompressed size of the XML parts, which dominate parse time and heap */
+  public long getXmlBytes() {
+    return xmlBytes;
+  }
+
+  /** Charts referenced by the main document */
+  public int getCharts() {
+    return charts;
+  }
+
+  /** Images referenced by the main document */
+  public int getImages() {
+    return images;
+  }
+
+  /** Workbooks embedded in the package, usually the data behind charts */
+  public int getEmbeddedSpreadsheets() {
+    return embeddedSpreadsheets;
+  }
+
+  /** Relative conversion cost, roughly proportional to in-process conversion time */
+  public double getCost() {
+    return cost;
+  }
+
+  /** Heap an in-process engine is expected to need to load and convert the document */
+  public long getEstimatedHeapBytes() {
+    return estimatedHeapBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "format=%s file=%d entries=%d uncompressed=%d xml=%d charts=%d images=%d"
+            + " spreadsheets=%d cost=%.1f heap=%dMB",
+        format,
+        fileBytes,
+        entries,
+        uncompressedBytes,
+        xmlBytes,
+        charts,
+        images,
+        embeddedSpreadsheets,
+        cost,
+        estimatedHeapBytes / (1024 * 1024));
+  }
+}
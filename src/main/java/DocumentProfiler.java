@@ -0,0 +1,303 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.util.XMLHelper;
+
+/**
+ * Pre-flight cost estimate for a document. Only the zip central directory, {@code
+ * [Content_Types].xml} and the main document's relationships are read, so a profile takes a few
+ * milliseconds whatever the size of the document. A .doc has no such index and is profiled from its
+ * file size alone.
+ *
+ * <p>Inputs are rejected when the sum of their uncompressed entries exceeds {@code
+ * profiler.maxUncompressedMb} (default 512), and for in-process engines also when their estimated
+ * heap exceeds {@code profiler.maxHeapMb} (default half the maximum heap).
+ */
+public class DocumentProfiler {
+
+  private static final XMLInputFactory FACTORY = XMLHelper.newXMLInputFactory();
+
+  private static final long MB = 1024 * 1024;
+  private static final long MAX_UNCOMPRESSED_BYTES =
+      Long.getLong("profiler.maxUncompressedMb", 512L) * MB;
+  private static final long MAX_HEAP_BYTES =
+      Long.getLong("profiler.maxHeapMb", Runtime.getRuntime().maxMemory() / 2 / MB) * MB;
+
+  private static final String MAIN_CONTENT_TYPE =
+      "application/vnd.openxmlformats-officedocument.wordprocessingml.document.main+xml";
+  private static final String DEFAULT_MAIN_PART = "word/document.xml";
+
+  // Heap model: XMLBeans trees take about ten times the XML they were parsed from, binary parts
+  // are held once, and every chart is rendered into an 800x600 ARGB image plus its PNG
+  private static final long BASE_HEAP_BYTES = 16 * MB;
+  private static final int XML_HEAP_FACTOR = 10;
+  private static final long CHART_HEAP_BYTES = 4 * MB;
+  // HWPF keeps the OLE2 file in memory next to the text and property tables it decodes
+  private static final int DOC_HEAP_FACTOR = 4;
+
+  // Cost weights, in units of parsing one MB of XML
+  private static final double BINARY_MB_COST = 0.1;
+  private static final double CHART_COST = 2.0;
+  private static final double IMAGE_COST = 0.2;
+  private static final double SPREADSHEET_COST = 0.5;
+
+  /** Profile a .doc or .docx file */
+  public static DocumentProfile profile(File file) throws IOException {
+    FileMagic magic = FileMagic.valueOf(file);
+    if (magic == FileMagic.OLE2) {
+      long size = file.length();
+      return new DocumentProfile(
+          DocumentFormat.DOC,
+          size,
+          0,
+          size,
+          0,
+          0,
+          0,
+          0,
+          (double) size / MB,
+          BASE_HEAP_BYTES + size * DOC_HEAP_FACTOR);
+    }
+    if (magic != FileMagic.OOXML) {
+      throw new IOException("Unsupported file type: " + magic);
+    }
+
+    // Opening a ZipFile reads the central directory and nothing else
+    try (ZipFile zip = new ZipFile(file)) {
+      return profile(zip, file.length());
+    }
+  }
+
+  /** Why the document should not be converted in process, or null if it can be admitted */
+  public static String rejectionReason(DocumentProfile profile) {
+    return rejectionReason(profile, true);
+  }
+
+  /**
+   * Why the document should not be converted, or null if it can be admitted. The heap limit only
+   * applies to engines that load the document into this JVM, an office process never does.
+   */
+  public static String rejectionReason(DocumentProfile profile, boolean inProcess) {
+    if (profile.getUncompressedBytes() > MAX_UNCOMPRESSED_BYTES) {
+      return String.format(
+          "Document expands to %d MB, more than the %d MB allowed",
+          profile.getUncompressedBytes() / MB, MAX_UNCOMPRESSED_BYTES / MB);
+    }
+    if (inProcess && profile.getEstimatedHeapBytes() > MAX_HEAP_BYTES) {
+      return String.format(
+          "Document needs an estimated %d MB of heap, more than the %d MB allowed",
+          profile.getEstimatedHeapBytes() / MB, MAX_HEAP_BYTES / MB);
+    }
+    return null;
+  }
+
+  /**
+   * Why the file should not be converted, or null if it can be admitted. Files that are neither
+   * OLE2 nor zip are not Word documents and are admitted; a Word file that cannot be profiled, such
+   * as a corrupt zip, is rejected.
+   */
+  public static String rejectionReason(File file, boolean inProcess) {
+    try {
+      FileMagic magic = FileMagic.valueOf(file);
+      if (magic != FileMagic.OLE2 && magic != FileMagic.OOXML) {
+        return null;
+      }
+      String reason = rejectionReason(profile(file), inProcess);
+      return reason != null ? file.getName() + ": " + reason : null;
+    } catch (IOException e) {
+      return file.getName() + ": cannot be read as a Word document: " + e.getMessage();
+    }
+  }
+
+  private static DocumentProfile profile(ZipFile zip, long fileBytes) throws IOException {
+    int entries = 0;
+    long uncompressed = 0;
+    long xml = 0;
+    List<String> names = new ArrayList<>();
+
+    Enumeration<? extends ZipEntry> it = zip.entries();
+    while (it.hasMoreElements()) {
+      ZipEntry entry = it.nextElement();
+      if (entry.isDirectory()) {
+        continue;
+      }
+      // Sizes of streamed entries may be unknown, count them at their compressed size
+      long size = entry.getSize() >= 0 ? entry.getSize() : entry.getCompressedSize();
+      entries++;
+      uncompressed += Math.max(0, size);
+      String name = entry.getName().toLowerCase(Locale.ROOT);
+      if (name.endsWith(".xml") || name.endsWith(".rels")) {
+        xml += Math.max(0, size);
+      }
+      names.add(entry.getName());
+    }
+
+    ContentTypes types = readContentTypes(zip);
+    int spreadsheets = 0;
+    for (String name : names) {
+      if (isSpreadsheet(types.of(name))) {
+        spreadsheets++;
+      }
+    }
+
+    String mainPart = types.mainPart != null ? types.mainPart : DEFAULT_MAIN_PART;
+    int[] references = readReferences(zip, relationshipsOf(mainPart));
+    int charts = references[0];
+    int images = references[1];
+
+    long binary = uncompressed - xml;
+    double cost =
+        (double) xml / MB
+            + BINARY_MB_COST * binary / MB
+            + CHART_COST * charts
+            + IMAGE_COST * images
+            + SPREADSHEET_COST * spreadsheets;
+    long heap = BASE_HEAP_BYTES + xml * XML_HEAP_FACTOR + binary + charts * CHART_HEAP_BYTES;
+
+    return new DocumentProfile(
+        DocumentFormat.DOCX,
+        fileBytes,
+        entries,
+        uncompressed,
+        xml,
+        charts,
+        images,
+        spreadsheets,
+        cost,
+        heap);
+  }
+
+  /** Entry name of the main document part, taken from its content type */
+  static String mainPart(ZipFile zip) throws IOException {
+    ContentTypes types = readContentTypes(zip);
+    return types.mainPart != null ? types.mainPart : DEFAULT_MAIN_PART;
+  }
+
+  private static boolean isSpreadsheet(String contentType) {
+    return contentType != null
+        && (contentType.contains("spreadsheetml")
+            || contentType.startsWith("application/vnd.ms-excel"));
+  }
+
+  /** Default and Override content types from [Content_Types].xml */
+  private static class ContentTypes {
+    final Map<String, String> defaults = new HashMap<>();
+    final Map<String, String> overrides = new HashMap<>();
+    String mainPart;
+
+    String of(String entryName) {
+      String type = overrides.get("/" + entryName);
+      if (type != null) {
+        return type;
+      }
+      int dot = entryName.lastIndexOf('.');
+      return dot < 0 ? null : defaults.get(entryName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+  }
+
+  private static ContentTypes readContentTypes(ZipFile zip) throws IOException {
+    ContentTypes types = new ContentTypes();
+    ZipEntry entry = zip.getEntry("[Content_Types].xml");
+    if (entry == null) {
+      throw new IOException("No [Content_Types].xml in DOCX");
+    }
+
+    try (InputStream in = zip.getInputStream(entry)) {
+      XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+      try {
+        while (reader.hasNext()) {
+          if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+            continue;
+          }
+          String contentType = reader.getAttributeValue(null, "ContentType");
+          if (reader.getLocalName().equals("Default")) {
+            String extension = reader.getAttributeValue(null, "Extension");
+            if (extension != null) {
+              types.defaults.put(extension.toLowerCase(Locale.ROOT), contentType);
+            }
+          } else if (reader.getLocalName().equals("Override")) {
+            String partName = reader.getAttributeValue(null, "PartName");
+            if (partName != null) {
+              types.overrides.put(partName, contentType);
+              if (MAIN_CONTENT_TYPE.equals(contentType)) {
+                types.mainPart = partName.substring(1);
+              }
+            }
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot read [Content_Types].xml", e);
+    }
+    return types;
+  }
+
+  /** word/document.xml has its relationships in word/_rels/document.xml.rels */
+  private static String relationshipsOf(String part) {
+    int slash = part.lastIndexOf('/');
+    return part.substring(0, slash + 1) + "_rels/" + part.substring(slash + 1) + ".rels";
+  }
+
+  /** Count the chart and image relationships of a part, as {charts, images} */
+  private static int[] readReferences(ZipFile zip, String relsName) throws IOException {
+    int[] counts = new int[2];
+    ZipEntry entry = zip.getEntry(relsName);
+    if (entry == null) {
+      return counts;
+    }
+
+    try (InputStream in = zip.getInputStream(entry)) {
+      XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+      try {
+        while (reader.hasNext()) {
+          if (reader.next() != XMLStreamConstants.START_ELEMENT
+              || !reader.getLocalName().equals("Relationship")) {
+            continue;
+          }
+          String type = reader.getAttributeValue(null, "Type");
+          if (type == null) {
+            continue;
+          }
+          if (type.endsWith("/chart")) {
+            counts[0]++;
+          } else if (type.endsWith("/image")) {
+            counts[1]++;
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot read " + relsName, e);
+    }
+    return counts;
+  }
+
+  public static void main(String[] args) throws Exception {
+    String inputPath = args.length > 0 ? args[0] : "file-sample.docx";
+
+    long start = System.nanoTime();
+    DocumentProfile profile = profile(new File(inputPath));
+    long micros = (System.nanoTime() - start) / 1000;
+
+    System.out.println("Profile: " + profile);
+    System.out.println("Profiled in " + micros + " us");
+    String reason = rejectionReason(profile);
+    System.out.println(reason == null ? "Admitted" : "Rejected: " + reason);
+  }
+}
@@ -6,21 +6,24 @@ import java.io.*;
 public class Documents4jConverter {
 
   public static boolean convertToPdf(String inputPath, String outputPath) {
-    try {
-      File inputFile = new File(inputPath);
-      File outputFile = new File(outputPath);
+    File inputFile = new File(inputPath);
+    File outputFile = new File(outputPath);
+    try (ConversionTrace trace = ConversionTrace.begin("Documents4jConverter", inputFile)) {
+      boolean result;
+      // Word converts the document in its own process
+      try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.EXTERNAL_PROCESS)) {
+        IConverter converter = LocalConverter.builder().build();
 
-      IConverter converter = LocalConverter.builder().build();
+        result =
+            converter
+                .convert(inputFile)
+                .as(DocumentType.DOCX)
+                .to(outputFile)
+                .as(DocumentType.PDF)
+                .execute();
 
-      boolean result =
-          converter
-              .convert(inputFile)
-              .as(DocumentType.DOCX)
-              .to(outputFile)
-              .as(DocumentType.PDF)
-              .execute();
-
-      converter.shutDown();
+        converter.shutDown();
+      }
 
       if (result) {
         System.out.println("Conversion successful with Documents4j!");
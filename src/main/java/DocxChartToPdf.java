@@ -3,7 +3,7 @@ import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.Image;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.List;
@@ -19,8 +19,7 @@ public class DocxChartToPdf {
 
     try {
       // Step 1: Read the DOCX file
-      FileInputStream fis = new FileInputStream(docxPath);
-      XWPFDocument doc = new XWPFDocument(fis);
+      XWPFDocument doc = DocumentLoader.openDocx(new File(docxPath));
 
       // Step 2: Create a PDF document
       PdfWriter writer = new PdfWriter(new FileOutputStream(pdfPath));
@@ -57,7 +56,6 @@ public class DocxChartToPdf {
       document.close();
       pdfDoc.close();
       doc.close();
-      fis.close();
 
       System.out.println("PDF created successfully at: " + pdfPath);
 
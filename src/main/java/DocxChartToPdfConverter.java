@@ -1,24 +1,29 @@
-import com.itextpdf.io.image.ImageData;
-import com.itextpdf.io.image.ImageDataFactory;
-import com.itextpdf.kernel.pdf.PdfDocument;
-import com.itextpdf.kernel.pdf.PdfWriter;
-import com.itextpdf.layout.Document;
-import com.itextpdf.layout.element.Image;
-import com.itextpdf.layout.element.Paragraph;
-import java.awt.Color;
+import com.itextpdf.awt.PdfGraphics2D;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfTemplate;
+import com.itextpdf.text.pdf.PdfWriter;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
-import javax.imageio.ImageIO;
 import org.apache.poi.xwpf.usermodel.XWPFChart;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFPictureData;
 
 public class DocxChartToPdfConverter {
 
+  private static final int CHART_WIDTH = 800;
+  private static final int CHART_HEIGHT = 600;
+
+  /** Embed charts as PNG images instead of vector drawings */
+  private static final boolean RASTER_CHARTS = Boolean.getBoolean("charts.raster");
+
   public static void main(String[] args) {
     try {
       String docxPath = "file-sample.docx";
@@ -33,18 +38,31 @@ public class DocxChartToPdfConverter {
   }
 
   public static void convertDocxChartsToPdf(String docxPath, String pdfPath) throws Exception {
-    // Extract charts and images from DOCX
-    List<byte[]> imageData = extractImagesFromDocx(docxPath);
-
-    // Create PDF with extracted images
-    createPdfWithImages(imageData, pdfPath);
+    convertDocxChartsToPdf(docxPath, pdfPath, RASTER_CHARTS);
   }
 
-  private static List<byte[]> extractImagesFromDocx(String docxPath) throws Exception {
-    List<byte[]> imageDataList = new ArrayList<>();
+  /**
+   * Charts are drawn with JFreeChart straight onto a PDF Graphics2D backed by a Form XObject, so
+   * they stay vector graphics. With rasterCharts they are rendered to PNG and embedded as images.
+   */
+  public static void convertDocxChartsToPdf(String docxPath, String pdfPath, boolean rasterCharts)
+      throws Exception {
+    try (ConversionTrace trace =
+        ConversionTrace.begin("DocxChartToPdfConverter", new File(docxPath))) {
+      // Extract charts and images from DOCX
+      List<byte[]> imageData = new ArrayList<>();
+      List<ChartData> chartData = new ArrayList<>();
+      extractFromDocx(docxPath, rasterCharts, imageData, chartData);
+
+      // Create PDF with extracted images and charts
+      createPdf(imageData, chartData, pdfPath);
+    }
+  }
 
-    try (FileInputStream fis = new FileInputStream(docxPath);
-        XWPFDocument document = new XWPFDocument(fis)) {
+  private static void extractFromDocx(
+      String docxPath, boolean rasterCharts, List<byte[]> imageDataList, List<ChartData> charts)
+      throws Exception {
+    try (XWPFDocument document = DocumentLoader.openDocx(new File(docxPath))) {
 
       // Method 1: Extract all pictures (including charts saved as images)
       List<XWPFPictureData> pictures = document.getAllPictures();
@@ -55,119 +73,117 @@ public class DocxChartToPdfConverter {
         }
       }
 
-      // Method 2: Try to extract chart images specifically
-      List<XWPFChart> charts = document.getCharts();
-      for (XWPFChart chart : charts) {
-        // Create a placeholder image for charts that can't be directly extracted
-        BufferedImage chartImage = createChartPlaceholder(chart, imageDataList.size() + 1);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(chartImage, "PNG", baos);
-        imageDataList.add(baos.toByteArray());
+      // Method 2: Read the chart data, or render the charts now when embedding them as images
+      for (XWPFChart chart : document.getCharts()) {
+        if (rasterCharts) {
+          imageDataList.add(
+              XWPFChartToImageConverter.convertChartToPng(chart, CHART_WIDTH, CHART_HEIGHT));
+        } else {
+          charts.add(XWPFChartToImageConverter.readChartData(chart));
+        }
       }
     }
-
-    return imageDataList;
   }
 
-  private static BufferedImage createChartPlaceholder(XWPFChart chart, int chartNumber) {
-    int width = 800;
-    int height = 600;
-
-    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-    Graphics2D g2d = image.createGraphics();
-
-    // Set rendering hints
-    g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-    g2d.setRenderingHint(
-        RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-
-    // Fill background
-    g2d.setColor(Color.WHITE);
-    g2d.fillRect(0, 0, width, height);
-
-    // Draw border
-    g2d.setColor(Color.GRAY);
-    g2d.drawRect(10, 10, width - 20, height - 20);
-
-    // Draw title
-    g2d.setColor(Color.BLACK);
-    g2d.setFont(new java.awt.Font("Arial", java.awt.Font.BOLD, 24));
-    String title = "Chart " + chartNumber;
-    g2d.drawString(title, 50, 60);
-
-    // Draw chart info if available
-    g2d.setFont(new java.awt.Font("Arial", java.awt.Font.PLAIN, 16));
-    g2d.drawString("Chart extracted from DOCX", 50, 100);
-
-    try {
-      // Try to get some basic chart information
-      String chartTitle =
-          chart.getCTChart().getTitle() != null
-              ? chart.getCTChart().getTitle().toString()
-              : "Untitled Chart";
-      g2d.drawString("Title: " + chartTitle, 50, 130);
-    } catch (Exception e) {
-      g2d.drawString("Chart data available", 50, 130);
+  /**
+   * Write the PDF. The file stream is closed even when writing fails, and a partially written file
+   * is deleted rather than left behind truncated.
+   */
+  private static void createPdf(List<byte[]> imageDataList, List<ChartData> charts, String pdfPath)
+      throws Exception {
+    boolean written = false;
+    try (OutputStream out = new FileOutputStream(pdfPath)) {
+      writePdf(imageDataList, charts, out);
+      written = true;
+    } finally {
+      if (!written) {
+        new File(pdfPath).delete();
+      }
     }
-
-    g2d.dispose();
-    return image;
   }
 
-  private static void createPdfWithImages(List<byte[]> imageDataList, String pdfPath)
+  private static void writePdf(List<byte[]> imageDataList, List<ChartData> charts, OutputStream out)
       throws Exception {
-    PdfWriter writer = new PdfWriter(pdfPath);
-    PdfDocument pdfDoc = new PdfDocument(writer);
-    Document document = new Document(pdfDoc);
+    Document document = new Document(PageSize.A4);
+    PdfWriter writer = PdfWriter.getInstance(document, out);
+    document.open();
 
     // Add title
-    document.add(new Paragraph("Charts and Images from DOCX Document").setBold().setFontSize(16));
+    document.add(
+        new Paragraph(
+            "Charts and Images from DOCX Document",
+            new Font(Font.FontFamily.HELVETICA, 16, Font.BOLD)));
+
+    int number = 0;
 
     // Add each image to the PDF
-    for (int i = 0; i < imageDataList.size(); i++) {
-      byte[] imageBytes = imageDataList.get(i);
+    for (byte[] imageBytes : imageDataList) {
+      number++;
+      try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.IMAGE)) {
+        addFigure(document, Image.getInstance(imageBytes), number);
+      } catch (Exception e) {
+        // If image can't be processed, add error message
+        addError(document, number, e);
+      }
+    }
 
+    // Draw each chart into its own Form XObject
+    for (ChartData chart : charts) {
+      number++;
       try {
-        // Create iText Image
-        ImageData imageData = ImageDataFactory.create(imageBytes);
-        Image image = new Image(imageData);
-
-        // Scale image to fit page if necessary
-        float maxWidth = document.getPdfDocument().getDefaultPageSize().getWidth() - 80;
-        float maxHeight = document.getPdfDocument().getDefaultPageSize().getHeight() - 150;
-
-        if (image.getImageWidth() > maxWidth || image.getImageHeight() > maxHeight) {
-          image.scaleToFit(maxWidth, maxHeight);
+        PdfTemplate template = writer.getDirectContent().createTemplate(CHART_WIDTH, CHART_HEIGHT);
+        Graphics2D g2d = new PdfGraphics2D(template, CHART_WIDTH, CHART_HEIGHT);
+        try {
+          XWPFChartToImageConverter.drawChart(
+              chart, g2d, new Rectangle2D.Double(0, 0, CHART_WIDTH, CHART_HEIGHT));
+        } finally {
+          g2d.dispose();
         }
-
-        // Add image title
-        document.add(new Paragraph("Image/Chart " + (i + 1)).setBold().setFontSize(12));
-
-        // Add image to document
-        document.add(image);
-
-        // Add some space between images
-        document.add(new Paragraph("\n"));
-
+        addFigure(document, Image.getInstance(template), number);
       } catch (Exception e) {
-        // If image can't be processed, add error message
-        document.add(
-            new Paragraph("Could not process image " + (i + 1) + ": " + e.getMessage())
-                .setItalic());
+        addError(document, number, e);
       }
     }
 
-    if (imageDataList.isEmpty()) {
+    if (number == 0) {
       document.add(new Paragraph("No images or charts found in the DOCX document."));
     }
 
-    document.close();
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.WRITE)) {
+      document.close();
+    }
+  }
+
+  private static void addFigure(Document document, Image image, int number) throws Exception {
+    // Scale image to fit page if necessary
+    float maxWidth = document.getPageSize().getWidth() - 80;
+    float maxHeight = document.getPageSize().getHeight() - 150;
+
+    if (image.getWidth() > maxWidth || image.getHeight() > maxHeight) {
+      image.scaleToFit(maxWidth, maxHeight);
+    }
+
+    // Add image title
+    document.add(
+        new Paragraph("Image/Chart " + number, new Font(Font.FontFamily.HELVETICA, 12, Font.BOLD)));
+
+    // Add image to document
+    document.add(image);
+
+    // Add some space between images
+    document.add(new Paragraph("\n"));
+  }
+
+  private static void addError(Document document, int number, Exception e) throws Exception {
+    document.add(
+        new Paragraph(
+            "Could not process image " + number + ": " + e.getMessage(),
+            new Font(Font.FontFamily.HELVETICA, 12, Font.ITALIC)));
   }
 
   // Enhanced method for better chart extraction using POI's chart API
   public static void extractChartsAdvanced(String docxPath, String outputDir) throws Exception {
-    try (FileInputStream fis = new FileInputStream(docxPath);
-        XWPFDocument document = new XWPFDocument(fis)) {
+    try (XWPFDocument document = DocumentLoader.openDocx(new File(docxPath))) {
 
       List<XWPFChart> charts = document.getCharts();
 
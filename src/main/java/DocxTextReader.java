@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.apache.poi.util.XMLHelper;
+
+/**
+ * Text-only fast path for DOCX. The main document part is streamed straight out of the zip with
+ * StAX and every paragraph is handed to the consumer as soon as it ends, so no XWPFDocument is
+ * built and memory use does not grow with the document. Text is laid out like XWPFWordExtractor:
+ * w:tab becomes a tab, w:br and w:cr a newline, and each table row is one paragraph with its cells
+ * separated by tabs. Headers, footers, footnotes and text boxes are not included.
+ */
+public class DocxTextReader {
+
+  private static final XMLInputFactory FACTORY = XMLHelper.newXMLInputFactory();
+
+  private static final String DEFAULT_MAIN_PART = "word/document.xml";
+  private static final String OFFICE_DOCUMENT_REL = "/officeDocument";
+
+  private final ParagraphConsumer consumer;
+
+  private final StringBuilder paragraph = new StringBuilder();
+  private final StringBuilder row = new StringBuilder();
+  private int runDepth;
+  private int tableDepth;
+  private int skipDepth;
+  private int rowCells;
+  private int cellParagraphs;
+
+  private DocxTextReader(ParagraphConsumer consumer) {
+    this.consumer = consumer;
+  }
+
+  /** Read the paragraphs of a DOCX stream; the stream is read to the main part but not closed */
+  public static void read(InputStream docx, ParagraphConsumer consumer) throws Exception {
+    ZipInputStream zip = new ZipInputStream(CloseShieldInputStream.wrap(docx));
+    String mainPart = DEFAULT_MAIN_PART;
+
+    ZipEntry entry;
+    while ((entry = zip.getNextEntry()) != null) {
+      String name = entry.getName();
+      if (name.equals("_rels/.rels")) {
+        // Usually stored before the document, so a renamed main part is still found
+        mainPart = readMainPartName(bounded(zip));
+      } else if (name.equals(mainPart)) {
+        new DocxTextReader(consumer).parse(bounded(zip));
+        return;
+      }
+    }
+    throw new IOException("No main document part (" + mainPart + ") in DOCX");
+  }
+
+  /** Read the paragraphs of an already opened package, using random access to its main part */
+  public static void read(OPCPackage pkg, ParagraphConsumer consumer) throws Exception {
+    List<PackagePart> parts =
+        pkg.getPartsByRelationshipType(PackageRelationshipTypes.CORE_DOCUMENT);
+    if (parts.isEmpty()) {
+      parts = pkg.getPartsByRelationshipType(PackageRelationshipTypes.STRICT_CORE_DOCUMENT);
+    }
+    if (parts.isEmpty()) {
+      throw new IOException("No main document part in DOCX");
+    }
+
+    try (InputStream document = parts.get(0).getInputStream()) {
+      new DocxTextReader(consumer).parse(document);
+    }
+  }
+
+  /** The current entry, limited to ZipSecureFile's maximum entry size and never closed */
+  private static InputStream bounded(ZipInputStream zip) {
+    long max = ZipSecureFile.getMaxEntrySize();
+    return new ProxyInputStream(zip) {
+      private long read;
+
+      @Override
+      protected void afterRead(int n) throws IOException {
+        if (n > 0 && (read += n) > max) {
+          throw new IOException("DOCX entry is larger than the allowed " + max + " bytes");
+        }
+      }
+
+      @Override
+      public void close() {
+        // Leave the zip stream open for the next entry
+      }
+    };
+  }
+
+  private static String readMainPartName(InputStream rels) throws XMLStreamException {
+    XMLStreamReader reader = FACTORY.createXMLStreamReader(rels);
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT
+            && reader.getLocalName().equals("Relationship")) {
+          String type = reader.getAttributeValue(null, "Type");
+          String target = reader.getAttributeValue(null, "Target");
+          if (type != null && target != null && type.endsWith(OFFICE_DOCUMENT_REL)) {
+            return target.startsWith("/") ? target.substring(1) : target;
+          }
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return DEFAULT_MAIN_PART;
+  }
+
+  private void parse(InputStream document) throws Exception {
+    XMLStreamReader reader = FACTORY.createXMLStreamReader(document);
+    try {
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          startElement(reader);
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          endElement(reader.getLocalName());
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  private void startElement(XMLStreamReader reader) throws XMLStreamException {
+    String name = reader.getLocalName();
+
+    // Text boxes, and the fallback copy of alternate content, would repeat or misplace text
+    if (skipDepth > 0 || name.equals("txbxContent") || name.equals("Fallback")) {
+      skipDepth++;
+      return;
+    }
+
+    switch (name) {
+      case "r":
+        runDepth++;
+        break;
+      case "t":
+        if (runDepth > 0) {
+          // getElementText consumes the end tag
+          paragraph.append(reader.getElementText());
+        }
+        break;
+      case "tab":
+        // w:tab in paragraph properties is a tab stop, not a character
+        if (runDepth > 0) {
+          paragraph.append('\t');
+        }
+        break;
+      case "br":
+      case "cr":
+        if (runDepth > 0) {
+          paragraph.append('\n');
+        }
+        break;
+      case "tbl":
+        tableDepth++;
+        break;
+      case "tr":
+        if (tableDepth == 1) {
+          row.setLength(0);
+          rowCells = 0;
+        }
+        break;
+      case "tc":
+        if (tableDepth == 1) {
+          if (rowCells++ > 0) {
+            row.append('\t');
+          }
+          cellParagraphs = 0;
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void endElement(String name) throws Exception {
+    if (skipDepth > 0) {
+      skipDepth--;
+      return;
+    }
+
+    switch (name) {
+      case "r":
+        runDepth--;
+        break;
+      case "p":
+        endParagraph();
+        break;
+      case "tbl":
+        // XWPFWordExtractor leaves a blank line after each table
+        if (--tableDepth == 0) {
+          consumer.accept("");
+        }
+        break;
+      case "tr":
+        if (tableDepth == 1) {
+          consumer.accept(row.toString());
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void endParagraph() throws Exception {
+    if (tableDepth == 0) {
+      consumer.accept(paragraph.toString());
+    } else {
+      // Paragraphs within a cell, including nested tables, are joined with tabs
+      if (cellParagraphs++ > 0) {
+        row.append('\t');
+      }
+      row.append(paragraph);
+    }
+    paragraph.setLength(0);
+  }
+}
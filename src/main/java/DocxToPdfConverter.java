@@ -1,25 +1,19 @@
 import fr.opensagres.poi.xwpf.converter.pdf.PdfConverter;
 import fr.opensagres.poi.xwpf.converter.pdf.PdfOptions;
 import java.io.*;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.poi.xwpf.usermodel.*;
 
-public class DocxToPdfConverter {
+public class DocxToPdfConverter implements DocumentConverter {
 
   public static void main(String[] args) {
     String inputPath = "file-sample.docx";
     String outputPath = "output222.pdf";
 
-    try (InputStream inputStream = new FileInputStream(inputPath);
-        OutputStream outputStream = new FileOutputStream(outputPath)) {
+    try (OutputStream outputStream = new FileOutputStream(outputPath)) {
 
-      // Load DOCX file into XWPFDocument
-      XWPFDocument document = new XWPFDocument(inputStream);
-
-      // Create PDF conversion options
-      PdfOptions options = PdfOptions.create();
-
-      // Convert DOCX to PDF
-      PdfConverter.getInstance().convert(document, outputStream, options);
+      new DocxToPdfConverter()
+          .convert(new File(inputPath), outputStream, ConversionOptions.create());
 
       System.out.println("Conversion completed successfully: " + outputPath);
 
@@ -27,4 +21,33 @@ public class DocxToPdfConverter {
       e.printStackTrace();
     }
   }
+
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    // Load DOCX file into XWPFDocument
+    try (ConversionTrace trace = ConversionTrace.begin(engineId());
+        XWPFDocument document = DocumentLoader.openDocx(in, options)) {
+      convert(document, out);
+    }
+  }
+
+  /** Convert a file, reading it with random access instead of loading it from a stream */
+  @Override
+  public void convert(File input, OutputStream out, ConversionOptions options) throws Exception {
+    try (ConversionTrace trace = ConversionTrace.begin(engineId(), input);
+        XWPFDocument document = DocumentLoader.openDocx(input)) {
+      convert(document, out);
+    }
+  }
+
+  private static void convert(XWPFDocument document, OutputStream out) throws Exception {
+    // Create PDF conversion options
+    PdfOptions pdfOptions = PdfOptions.create();
+
+    // Convert DOCX to PDF; xdocreport lays out and writes pages in one pass
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LAYOUT)) {
+      PdfConverter.getInstance().convert(document, CloseShieldOutputStream.wrap(out), pdfOptions);
+    }
+  }
 }
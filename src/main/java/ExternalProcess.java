@@ -0,0 +1,153 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs office and docker commands with a deadline. Output is drained on its own thread, so a child
+ * that keeps the pipe open or fills it cannot block the caller, and when the deadline passes or the
+ * calling thread is interrupted the whole process tree is killed, not only the direct child.
+ */
+public final class ExternalProcess {
+
+  /** How long a killed process tree gets to exit on SIGTERM before it is killed forcibly */
+  private static final long KILL_GRACE_MILLIS = Long.getLong("process.killGraceMillis", 5000L);
+
+  // Output kept for the result; earlier output is dropped beyond this
+  private static final int MAX_OUTPUT_CHARS = 64 * 1024;
+
+  private ExternalProcess() {}
+
+  /**
+   * Run a command with stderr merged into stdout. Lines are echoed with the prefix unless it is
+   * null. On timeout the tree is killed and the result reports it; on interrupt the tree is killed
+   * and InterruptedException is thrown.
+   */
+  public static Result run(List<String> command, Duration timeout, String prefix)
+      throws IOException, InterruptedException {
+    ProcessBuilder pb = new ProcessBuilder(command);
+    pb.redirectErrorStream(true);
+    Process process = pb.start();
+
+    StringBuilder output = new StringBuilder();
+    Thread drain =
+        new Thread(
+            () -> {
+              try (BufferedReader reader =
+                  new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                  if (prefix != null) {
+                    System.out.println(prefix + line);
+                  }
+                  synchronized (output) {
+                    output.append(line).append('\n');
+                    if (output.length() > MAX_OUTPUT_CHARS) {
+                      output.delete(0, output.length() - MAX_OUTPUT_CHARS);
+                    }
+                  }
+                }
+              } catch (IOException e) {
+                // Stream closed after the process was killed
+              }
+            },
+            "process-drain-" + process.pid());
+    drain.setDaemon(true);
+    drain.start();
+
+    boolean exited;
+    try {
+      exited = process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      destroyTree(process.toHandle());
+      throw e;
+    }
+    if (!exited) {
+      destroyTree(process.toHandle());
+    }
+
+    // A grandchild that inherited the pipe can hold it open after the process exited
+    drain.join(1000);
+    process.getInputStream().close();
+
+    synchronized (output) {
+      return new Result(exited ? process.exitValue() : -1, output.toString(), !exited);
+    }
+  }
+
+  /**
+   * Terminate a process and all its descendants, forcibly for any still alive after the grace
+   * period
+   */
+  public static void destroyTree(ProcessHandle root) {
+    // Take the tree first, children are reparented and out of reach once their parent is gone
+    List<ProcessHandle> tree = new ArrayList<>();
+    tree.add(root);
+    root.descendants().forEach(tree::add);
+    tree.forEach(ProcessHandle::destroy);
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(KILL_GRACE_MILLIS);
+    boolean interrupted = false;
+    for (ProcessHandle handle : tree) {
+      try {
+        handle.onExit().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        interrupted = true;
+        break;
+      } catch (ExecutionException | TimeoutException e) {
+        break;
+      }
+    }
+    tree.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Wait for a pool job. Interrupting the waiting thread cancels the job, which kills its office
+   * process, and failures are rethrown unwrapped.
+   */
+  public static <T> T await(CompletableFuture<T> future) throws Exception {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      throw e;
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  public static final class Result {
+    private final int exitCode;
+    private final String output;
+    private final boolean timedOut;
+
+    Result(int exitCode, String output, boolean timedOut) {
+      this.exitCode = exitCode;
+      this.output = output;
+      this.timedOut = timedOut;
+    }
+
+    /** Exit code, or -1 if the process was killed at the deadline */
+    public int getExitCode() {
+      return exitCode;
+    }
+
+    public String getOutput() {
+      return output;
+    }
+
+    public boolean isTimedOut() {
+      return timedOut;
+    }
+  }
+}
@@ -0,0 +1,183 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps conversion records in memory as histograms of wall time, CPU time and allocation per engine
+ * and stage, plus the totals per engine. Histograms use eight buckets per power of two, so
+ * percentiles are within about 6% and memory stays fixed however many conversions are recorded.
+ */
+public class HistogramSink implements ConversionSink {
+
+  private static final HistogramSink SHARED = new HistogramSink();
+
+  // Histograms for wall time, CPU time and allocation, by engine and then stage or "total"
+  private final Map<String, Histogram[]> histograms = new ConcurrentHashMap<>();
+
+  /** The sink used by {@code conversion.trace=histogram} */
+  public static HistogramSink shared() {
+    return SHARED;
+  }
+
+  @Override
+  public void accept(ConversionRecord record) {
+    record(
+        record.getEngine(),
+        null,
+        record.getWallNanos(),
+        record.getCpuNanos(),
+        record.getAllocatedBytes());
+    for (ConversionStage stage : ConversionStage.values()) {
+      // Only stages that ran, so a conversion without charts does not count as a fast render
+      if (record.getWallNanos(stage) > 0) {
+        record(
+            record.getEngine(),
+            stage,
+            record.getWallNanos(stage),
+            record.getCpuNanos(stage),
+            record.getAllocatedBytes(stage));
+      }
+    }
+  }
+
+  private void record(
+      String engine, ConversionStage stage, long wallNanos, long cpuNanos, long allocatedBytes) {
+    Histogram[] metrics =
+        histograms.computeIfAbsent(
+            key(engine, stage),
+            k -> new Histogram[] {new Histogram(), new Histogram(), new Histogram()});
+    metrics[0].record(wallNanos);
+    metrics[1].record(cpuNanos);
+    metrics[2].record(allocatedBytes);
+  }
+
+  private static String key(String engine, ConversionStage stage) {
+    return engine + " " + (stage != null ? stage.name().toLowerCase() : "total");
+  }
+
+  /**
+   * Wall time of an engine's stage, or of whole conversions for a null stage; null if never seen
+   */
+  public Histogram getWallNanos(String engine, ConversionStage stage) {
+    Histogram[] metrics = histograms.get(key(engine, stage));
+    return metrics != null ? metrics[0] : null;
+  }
+
+  public Histogram getCpuNanos(String engine, ConversionStage stage) {
+    Histogram[] metrics = histograms.get(key(engine, stage));
+    return metrics != null ? metrics[1] : null;
+  }
+
+  public Histogram getAllocatedBytes(String engine, ConversionStage stage) {
+    Histogram[] metrics = histograms.get(key(engine, stage));
+    return metrics != null ? metrics[2] : null;
+  }
+
+  public void reset() {
+    histograms.clear();
+  }
+
+  /** A table of count, wall time percentiles, median CPU time and median allocation per stage */
+  public String report() {
+    StringBuilder text =
+        new StringBuilder(
+            String.format(
+                "%-40s %8s %10s %10s %10s %10s %10s %10s%n",
+                "engine stage",
+                "count",
+                "p50 ms",
+                "p90 ms",
+                "p99 ms",
+                "max ms",
+                "cpu p50 ms",
+                "alloc p50"));
+    new TreeMap<>(histograms)
+        .forEach(
+            (key, metrics) ->
+                text.append(
+                    String.format(
+                        "%-40s %8d %10.1f %10.1f %10.1f %10.1f %10.1f %9.1fM%n",
+                        key,
+                        metrics[0].getCount(),
+                        metrics[0].getPercentile(50) / 1e6,
+                        metrics[0].getPercentile(90) / 1e6,
+                        metrics[0].getPercentile(99) / 1e6,
+                        metrics[0].getMax() / 1e6,
+                        metrics[1].getPercentile(50) / 1e6,
+                        metrics[2].getPercentile(50) / (1024.0 * 1024))));
+    return text.toString();
+  }
+
+  /** Counts of non-negative values in log-linear buckets, safe to update from many threads */
+  public static final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+      value = Math.max(0, value);
+      buckets.incrementAndGet(bucket(value));
+      count.increment();
+      sum.add(value);
+      max.accumulateAndGet(value, Math::max);
+    }
+
+    private static int bucket(long value) {
+      if (value < SUB_BUCKETS) {
+        return (int) value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int shift = exponent - SUB_BUCKET_BITS;
+      return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /** Middle of the values that fall into a bucket */
+    private static long middle(int bucket) {
+      if (bucket < SUB_BUCKETS) {
+        return bucket;
+      }
+      int shift = bucket / SUB_BUCKETS - 1;
+      long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+      return lowest + ((1L << shift) >> 1);
+    }
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public double getMean() {
+      long n = count.sum();
+      return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    public long getMax() {
+      return max.get();
+    }
+
+    /** Approximate value below which the given percentage of the values fall */
+    public long getPercentile(double percent) {
+      long n = count.sum();
+      if (n == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(n * percent / 100));
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += buckets.get(i);
+        if (seen >= rank) {
+          return Math.min(middle(i), max.get());
+        }
+      }
+      return max.get();
+    }
+  }
+}
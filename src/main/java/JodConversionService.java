@@ -0,0 +1,170 @@
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.jodconverter.core.document.DefaultDocumentFormatRegistry;
+import org.jodconverter.core.office.OfficeException;
+import org.jodconverter.local.LocalConverter;
+import org.jodconverter.local.office.LocalOfficeManager;
+
+/**
+ * Long-lived JODConverter service. One {@link LocalOfficeManager} runs an office process per port
+ * number, and conversions are fed to them from a bounded queue so callers get back-pressure instead
+ * of an unbounded backlog.
+ */
+public class JodConversionService implements DocumentConverter, AutoCloseable {
+
+  private final LocalOfficeManager officeManager;
+  private final LocalConverter converter;
+  private final ThreadPoolExecutor executor;
+  private final Path workingDir;
+
+  public JodConversionService(
+      int[] portNumbers, int queueCapacity, int maxTasksPerProcess, long taskTimeoutMillis) {
+    workingDir = scratchDir();
+    officeManager =
+        LocalOfficeManager.builder()
+            .portNumbers(portNumbers)
+            .maxTasksPerProcess(maxTasksPerProcess)
+            .taskExecutionTimeout(taskTimeoutMillis)
+            .workingDir(workingDir.toFile())
+            .build();
+    converter = LocalConverter.make(officeManager);
+
+    // One dispatcher thread per office process, anything beyond that waits in the bounded queue
+    executor =
+        new ThreadPoolExecutor(
+            portNumbers.length,
+            portNumbers.length,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /** Service with one office process per port starting at 2002 */
+  public static JodConversionService create(int processes) {
+    int[] ports = new int[processes];
+    for (int i = 0; i < processes; i++) {
+      ports[i] = 2002 + i;
+    }
+    return new JodConversionService(ports, processes * 16, 200, 120_000L);
+  }
+
+  public void start() throws OfficeException {
+    officeManager.start();
+  }
+
+  /** Queue a conversion; the future fails at once with OfficeException when the queue is full */
+  public CompletableFuture<Path> convert(Path inputFile, Path outputFile) {
+    try {
+      return CompletableFuture.supplyAsync(
+          () -> {
+            // The dispatcher thread waits here while the office process converts
+            try (ConversionTrace trace = ConversionTrace.begin(engineId(), inputFile.toFile());
+                ConversionTrace.Stage stage =
+                    ConversionTrace.stage(ConversionStage.EXTERNAL_PROCESS)) {
+              File output = outputFile.toFile();
+              converter.convert(inputFile.toFile()).to(output).execute();
+              return outputFile;
+            } catch (OfficeException e) {
+              throw new CompletionException(e);
+            }
+          },
+          executor);
+    } catch (RejectedExecutionException e) {
+      return CompletableFuture.failedFuture(queueFull(e));
+    }
+  }
+
+  /**
+   * Stream conversion; JODConverter stages the streams in its working directory. Throws
+   * OfficeException when the queue is full, the exception the file conversion's future fails with.
+   */
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    InputStream input = new BufferedInputStream(in);
+    DocumentFormat format = DocumentFormat.resolve(input, options);
+
+    // The office process reads the input and writes the PDF, so all of it is external time
+    try (ConversionTrace trace = ConversionTrace.begin(engineId());
+        ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.EXTERNAL_PROCESS)) {
+      CompletableFuture.runAsync(
+              () -> {
+                try {
+                  converter
+                      .convert(input, false)
+                      .as(
+                          format == DocumentFormat.DOC
+                              ? DefaultDocumentFormatRegistry.DOC
+                              : DefaultDocumentFormatRegistry.DOCX)
+                      .to(out, false)
+                      .as(DefaultDocumentFormatRegistry.PDF)
+                      .execute();
+                } catch (OfficeException e) {
+                  throw new CompletionException(e);
+                }
+              },
+              executor)
+          .join();
+    } catch (RejectedExecutionException e) {
+      throw queueFull(e);
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  /** The office process loads the document, not this JVM */
+  @Override
+  public boolean isInProcess() {
+    return false;
+  }
+
+  private static OfficeException queueFull(RejectedExecutionException e) {
+    return new OfficeException("Conversion queue is full", e);
+  }
+
+  public int queuedTasks() {
+    return executor.getQueue().size();
+  }
+
+  private static Path scratchDir() {
+    try {
+      return ScratchSpace.createTempDirectory("jod-work");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void close() throws OfficeException {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    try {
+      if (officeManager.isRunning()) {
+        officeManager.stop();
+      }
+    } finally {
+      try {
+        ScratchSpace.delete(workingDir);
+      } catch (IOException e) {
+        System.out.println("Could not delete " + workingDir + ": " + e.getMessage());
+      }
+    }
+  }
+}
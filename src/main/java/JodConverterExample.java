@@ -1,36 +1,26 @@
-import java.io.File;
-import org.jodconverter.local.LocalConverter;
-import org.jodconverter.local.office.LocalOfficeManager;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class JodConverterExample {
 
   public static void main(String[] args) throws Exception {
-    // Create an OfficeManager instance.
+    // Create a long-lived service with several office processes.
     // This will find a LibreOffice installation automatically.
-    LocalOfficeManager officeManager = LocalOfficeManager.builder().build();
+    try (JodConversionService service =
+        JodConversionService.create(Runtime.getRuntime().availableProcessors())) {
 
-    try {
-      // Start the office process
-      officeManager.start();
+      // Start the office processes once, then reuse them for every conversion
+      service.start();
 
       System.out.println("Converting DOCX to PDF using JODConverter...");
 
-      // Create the converter
-      LocalConverter converter = LocalConverter.make(officeManager);
-
-      File inputFile = new File("file-sample.docx");
-      File outputFile = new File("output_jodconverter.pdf");
+      Path inputFile = Paths.get("file-sample.docx");
+      Path outputFile = Paths.get("output_jodconverter.pdf");
 
       // Convert the file
-      converter.convert(inputFile).to(outputFile).execute();
-
-      System.out.println("Conversion successful: " + outputFile.getAbsolutePath());
+      Path result = service.convert(inputFile, outputFile).join();
 
-    } finally {
-      // Stop the office process
-      if (officeManager.isRunning()) {
-        officeManager.stop();
-      }
+      System.out.println("Conversion successful: " + result.toAbsolutePath());
     }
   }
 }
@@ -0,0 +1,176 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A long-running LibreOffice container. The container's main process is a resident office, and jobs
+ * are sent to it with {@code docker exec} through a work directory mounted at {@code /work}.
+ */
+public class LibreOfficeContainer {
+
+  private static final Duration COMMAND_TIMEOUT = Duration.ofMinutes(5);
+
+  private final String docker;
+  private final String image;
+  private final String name;
+  private final Path workDir;
+  private final Path profileDir;
+
+  private int jobs;
+  private int restarts;
+
+  public LibreOfficeContainer(
+      String docker, String image, String name, Path workDir, Path profileDir) {
+    this.docker = docker;
+    this.image = image;
+    this.name = name;
+    this.workDir = workDir;
+    this.profileDir = profileDir;
+  }
+
+  /** Start the container, replacing any leftover container with the same name */
+  public synchronized void start() throws IOException, InterruptedException {
+    run(List.of(docker, "rm", "-f", name));
+
+    ExternalProcess.Result result =
+        run(
+            List.of(
+                docker,
+                "run",
+                "-d",
+                "--name",
+                name,
+                "-v",
+                workDir + ":/work",
+                "-v",
+                profileDir + ":/profile",
+                "--entrypoint",
+                "libreoffice",
+                image,
+                "-env:UserInstallation=file:///profile",
+                "--headless",
+                "--invisible",
+                "--nologo",
+                "--norestore",
+                "--accept=pipe,name=doc2pdf;urp;"));
+
+    if (result.getExitCode() != 0) {
+      throw new IOException("Could not start container " + name + ": " + result.getOutput());
+    }
+    System.out.println("Started container " + name);
+  }
+
+  /** The container is healthy while its resident office is still running */
+  public synchronized boolean isHealthy() throws IOException, InterruptedException {
+    ExternalProcess.Result result =
+        run(List.of(docker, "inspect", "-f", "{{.State.Running}}", name));
+    return result.getExitCode() == 0 && result.getOutput().trim().equals("true");
+  }
+
+  /** Convert one file at the default timeout */
+  public boolean convert(String inputPath, String outputDir) throws Exception {
+    return convert(inputPath, outputDir, LibreOfficeWorkerPool.TIMEOUT_PER_FILE);
+  }
+
+  /**
+   * Convert one file inside the container and move the PDF into outputDir. Killing {@code docker
+   * exec} leaves the office in the container converting, so after a timeout, which also quarantines
+   * the input, or an interrupt the container is replaced.
+   */
+  public synchronized boolean convert(String inputPath, String outputDir, Duration timeout)
+      throws Exception {
+    if (!isHealthy()) {
+      restart();
+    }
+
+    String jobId = name + "-" + (++jobs);
+    Path jobIn = workDir.resolve("in").resolve(jobId);
+    Path jobOut = workDir.resolve("out").resolve(jobId);
+    Files.createDirectories(jobIn);
+    Files.createDirectories(jobOut);
+
+    try {
+      Path input = Paths.get(inputPath);
+      String fileName = input.getFileName().toString();
+      Files.copy(input, jobIn.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+
+      List<String> command =
+          List.of(
+              docker,
+              "exec",
+              name,
+              "libreoffice",
+              "-env:UserInstallation=file:///profile",
+              "--headless",
+              "--convert-to",
+              "pdf",
+              "--outdir",
+              "/work/out/" + jobId,
+              "/work/in/" + jobId + "/" + fileName);
+      ExternalProcess.Result result;
+      try {
+        result = ExternalProcess.run(command, timeout, "");
+      } catch (InterruptedException e) {
+        System.out.println("Job in " + name + " was cancelled");
+        restart();
+        throw e;
+      }
+
+      if (result.isTimedOut()) {
+        ConversionQuarantine.shared().record(input, "DockerLibreOfficeConverter", timeout);
+        restart();
+        throw new TimeoutException(
+            "Conversion in " + name + " timed out after " + timeout.toSeconds() + "s");
+      }
+
+      String pdfName = fileName.replaceFirst("\\.[^.]*$", "") + ".pdf";
+      Path pdf = jobOut.resolve(pdfName);
+      if (result.getExitCode() != 0 || !Files.exists(pdf)) {
+        System.out.println(
+            "Conversion in " + name + " failed with exit code: " + result.getExitCode());
+        if (!isHealthy()) {
+          restart();
+        }
+        return false;
+      }
+
+      Path target = Paths.get(outputDir);
+      Files.createDirectories(target);
+      Files.move(pdf, target.resolve(pdfName), StandardCopyOption.REPLACE_EXISTING);
+      return true;
+
+    } finally {
+      ScratchSpace.delete(jobIn);
+      ScratchSpace.delete(jobOut);
+    }
+  }
+
+  public synchronized void stop() {
+    try {
+      run(List.of(docker, "rm", "-f", name));
+    } catch (Exception e) {
+      System.out.println("Could not remove container " + name + ": " + e.getMessage());
+    }
+  }
+
+  public synchronized int getRestarts() {
+    return restarts;
+  }
+
+  private void restart() throws IOException, InterruptedException {
+    System.out.println("Restarting container " + name);
+    restarts++;
+    start();
+  }
+
+  /** Run a docker management command; starting a container may have to pull the image */
+  private static ExternalProcess.Result run(List<String> command)
+      throws IOException, InterruptedException {
+    return ExternalProcess.run(command, COMMAND_TIMEOUT, null);
+  }
+}
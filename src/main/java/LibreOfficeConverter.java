@@ -1,50 +1,219 @@
-import java.io.*;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
-public class LibreOfficeConverter {
+public class LibreOfficeConverter implements DocumentConverter {
 
+  private static final int BATCH_MAX_FILES = Integer.getInteger("libreoffice.batch.maxFiles", 50);
+  private static final long BATCH_MAX_BYTES =
+      Long.getLong("libreoffice.batch.maxMb", 64L) * 1024 * 1024;
+
+  /** Convert through the shared pool of resident office workers */
   public static boolean convertToPdf(String inputPath, String outputDir) {
-    try {
-      // Ensure output directory exists
-      Files.createDirectories(Paths.get(outputDir));
+    try (ConversionTrace trace =
+            ConversionTrace.begin("LibreOfficeConverter", new File(inputPath));
+        ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.EXTERNAL_PROCESS)) {
+      boolean converted =
+          ExternalProcess.await(LibreOfficeWorkerPool.shared().submit(inputPath, outputDir));
+
+      if (converted) {
+        System.out.println("Conversion successful - images and charts preserved!");
+      }
+      return converted;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (Exception e) {
+      e.printStackTrace();
+      return false;
+    }
+  }
 
-      ProcessBuilder pb =
-          new ProcessBuilder(
-              "soffice", // or "libreoffice" on some systems
-              "--headless",
-              "--convert-to",
-              "pdf",
-              "--outdir",
-              outputDir,
-              inputPath);
+  /**
+   * Convert many files with one office invocation per chunk. Chunks are bounded by {@code
+   * libreoffice.batch.maxFiles} and {@code libreoffice.batch.maxMb} and run in parallel on the
+   * worker pool. Each chunk writes into its own fresh directory, so only PDFs of this run count,
+   * and inputs that would write the same PDF go to different chunks; in outDir the later ones are
+   * numbered, as in {@code report-2.pdf}. Results are returned in input order.
+   */
+  public static List<BatchConversionResult> convertBatch(List<Path> inputs, Path outDir)
+      throws IOException {
+    Files.createDirectories(outDir);
 
-      pb.redirectErrorStream(true);
-      Process process = pb.start();
+    BatchConversionResult[] results = new BatchConversionResult[inputs.size()];
+    Path[] targets = new Path[inputs.size()];
+    List<Chunk> chunks = new ArrayList<>();
+    Set<String> targetNames = new HashSet<>();
 
-      // Read output for debugging
-      BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-      String line;
-      while ((line = reader.readLine()) != null) {
-        System.out.println(line);
+    for (int i = 0; i < inputs.size(); i++) {
+      Path input = inputs.get(i);
+      long size;
+      try {
+        size = Files.size(input);
+      } catch (IOException e) {
+        results[i] = BatchConversionResult.failed(input, "Cannot read input: " + e.getMessage());
+        continue;
       }
 
-      int exitCode = process.waitFor();
+      // Oversized inputs would fail their whole chunk in the pool, so reject them here
+      String rejection = DocumentProfiler.rejectionReason(input.toFile(), false);
+      if (rejection != null) {
+        results[i] = BatchConversionResult.failed(input, rejection);
+        continue;
+      }
 
-      if (exitCode == 0) {
-        System.out.println("Conversion successful - images and charts preserved!");
-        return true;
-      } else {
-        System.out.println("Conversion failed with exit code: " + exitCode);
+      String pdfName = pdfName(input);
+      Chunk chunk = null;
+      for (Chunk candidate : chunks) {
+        if (candidate.accepts(pdfName, size)) {
+          chunk = candidate;
+          break;
+        }
+      }
+      if (chunk == null) {
+        chunk = new Chunk();
+        chunks.add(chunk);
+      }
+      chunk.add(i, pdfName, size);
+      targets[i] = outDir.resolve(uniqueName(pdfName, targetNames));
+    }
+
+    LibreOfficeWorkerPool pool = LibreOfficeWorkerPool.shared();
+    List<Path> chunkDirs = new ArrayList<>();
+    List<CompletableFuture<Boolean>> pending = new ArrayList<>();
+    try {
+      for (Chunk chunk : chunks) {
+        // Next to outDir, so the PDFs are renamed into it rather than copied
+        Path chunkDir = Files.createTempDirectory(outDir, ".batch-");
+        chunkDirs.add(chunkDir);
+        List<String> inputPaths = new ArrayList<>();
+        chunk.indexes.forEach(i -> inputPaths.add(inputs.get(i).toString()));
+        pending.add(pool.submitBatch(inputPaths, chunkDir.toString()));
+      }
+
+      for (int c = 0; c < chunks.size(); c++) {
+        String chunkError = null;
+        try {
+          if (!ExternalProcess.await(pending.get(c))) {
+            chunkError = "office exited with an error";
+          }
+        } catch (InterruptedException e) {
+          // Cancels the remaining chunks too, since the interrupt stays set for their waits
+          Thread.currentThread().interrupt();
+          chunkError = "cancelled";
+        } catch (Exception e) {
+          chunkError = e.getMessage();
+        }
+
+        for (int i : chunks.get(c).indexes) {
+          Path input = inputs.get(i);
+          Path pdf = chunkDirs.get(c).resolve(pdfName(input));
+          if (Files.exists(pdf)) {
+            try {
+              Files.move(pdf, targets[i], StandardCopyOption.REPLACE_EXISTING);
+              results[i] = BatchConversionResult.converted(input, targets[i]);
+            } catch (IOException e) {
+              results[i] =
+                  BatchConversionResult.failed(input, "Cannot move PDF: " + e.getMessage());
+            }
+          } else {
+            results[i] =
+                BatchConversionResult.failed(
+                    input, chunkError != null ? chunkError : "no PDF was produced");
+          }
+        }
+      }
+    } finally {
+      pending.forEach(p -> p.cancel(true));
+      for (Path chunkDir : chunkDirs) {
+        ScratchSpace.delete(chunkDir);
+      }
+    }
+
+    return List.of(results);
+  }
+
+  /** The name, numbered if an earlier input of the batch already took it */
+  private static String uniqueName(String pdfName, Set<String> taken) {
+    String base = pdfName.substring(0, pdfName.length() - ".pdf".length());
+    String name = pdfName;
+    for (int n = 2; !taken.add(name); n++) {
+      name = base + "-" + n + ".pdf";
+    }
+    return name;
+  }
+
+  /** Inputs for one office invocation, which writes them all into one directory */
+  private static class Chunk {
+    final List<Integer> indexes = new ArrayList<>();
+    final Set<String> pdfNames = new HashSet<>();
+    long bytes;
+
+    boolean accepts(String pdfName, long size) {
+      if (pdfNames.contains(pdfName)) {
         return false;
       }
+      return indexes.isEmpty()
+          || (indexes.size() < BATCH_MAX_FILES && bytes + size <= BATCH_MAX_BYTES);
+    }
 
-    } catch (Exception e) {
-      e.printStackTrace();
-      return false;
+    void add(int index, String pdfName, long size) {
+      indexes.add(index);
+      pdfNames.add(pdfName);
+      bytes += size;
     }
   }
 
+  /** Name of the PDF the office writes for an input */
+  static String pdfName(Path input) {
+    return input.getFileName().toString().replaceFirst("\\.[^.]*$", "") + ".pdf";
+  }
+
+  /** Stream conversion through the worker pool, staging the document in scratch space */
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    InputStream input = new BufferedInputStream(in);
+    DocumentFormat format = DocumentFormat.resolve(input, options);
+
+    Path dir = ScratchSpace.createTempDirectory("lo-stream");
+    try (ConversionTrace trace = ConversionTrace.begin(engineId())) {
+      Path source = dir.resolve("input." + format.getExtension());
+      Files.copy(input, source);
+      ConversionTrace.feature("bytes", Files.size(source));
+
+      Path outDir = dir.resolve("out");
+      try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.EXTERNAL_PROCESS)) {
+        if (!ExternalProcess.await(
+            LibreOfficeWorkerPool.shared().submit(source.toString(), outDir.toString()))) {
+          throw new IOException("LibreOffice conversion failed");
+        }
+      }
+      try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.WRITE)) {
+        Files.copy(outDir.resolve("input.pdf"), out);
+      }
+    } finally {
+      ScratchSpace.delete(dir);
+    }
+  }
+
+  /** The office process loads the document, not this JVM */
+  @Override
+  public boolean isInProcess() {
+    return false;
+  }
+
   public static void main(String[] args) {
     String inputFile = "file-sample.docx";
     String outputDir = "/Users/linh.nguyen/Desktop/personal/doc-to-pdf";
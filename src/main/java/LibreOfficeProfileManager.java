@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Hands out private LibreOffice user profiles. A template profile is initialised once, and every
+ * worker gets its own copy of it, so concurrent office processes neither wait on each other's
+ * profile lock nor pay first-run initialisation. Closing the manager deletes the template and every
+ * profile it handed out.
+ */
+public class LibreOfficeProfileManager implements AutoCloseable {
+
+  private final Path root;
+  private final Path template;
+  private final Queue<Path> idle = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger created = new AtomicInteger();
+  private volatile boolean closed;
+
+  private final AtomicLong templateNanos = new AtomicLong();
+  private final AtomicLong copyNanos = new AtomicLong();
+
+  /**
+   * @param templateCommand command that initialises a profile in the given directory and exits
+   */
+  public LibreOfficeProfileManager(Path root, Function<Path, List<String>> templateCommand)
+      throws IOException {
+    this.root = root;
+    this.template = root.resolve("template");
+    Files.createDirectories(template);
+    buildTemplate(templateCommand.apply(template));
+  }
+
+  /** Profiles seeded by the local soffice binary */
+  public static LibreOfficeProfileManager forSoffice(String soffice) throws IOException {
+    return new LibreOfficeProfileManager(
+        Files.createTempDirectory("lo-profiles"),
+        dir ->
+            List.of(
+                soffice,
+                userInstallationArg(dir),
+                "--headless",
+                "--norestore",
+                "--terminate_after_init"));
+  }
+
+  /** The soffice argument that points an office process at a profile directory */
+  public static String userInstallationArg(Path profileDir) {
+    return "-env:UserInstallation=" + profileDir.toUri();
+  }
+
+  /** Take a private profile, copying the template if no released one is available */
+  public Path acquire() {
+    if (closed) {
+      throw new IllegalStateException("Profile manager is closed");
+    }
+    Path profile = idle.poll();
+    if (profile != null) {
+      return profile;
+    }
+
+    long start = System.nanoTime();
+    profile = root.resolve("profile-" + created.incrementAndGet());
+    try {
+      copyTree(template, profile);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not create profile " + profile, e);
+    }
+    copyNanos.addAndGet(System.nanoTime() - start);
+    return profile;
+  }
+
+  /** Return a profile for reuse by the next caller */
+  public void release(Path profile) {
+    idle.add(profile);
+  }
+
+  public Path getRoot() {
+    return root;
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Delete the root directory with the template and all profiles, which must no longer be in use
+   */
+  @Override
+  public void close() {
+    closed = true;
+    idle.clear();
+    try {
+      ScratchSpace.delete(root);
+    } catch (IOException e) {
+      System.out.println("Could not delete profiles in " + root + ": " + e.getMessage());
+    }
+  }
+
+  public long getTemplateBuildMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(templateNanos.get());
+  }
+
+  public int getProfilesCreated() {
+    return created.get();
+  }
+
+  public long getProfileCopyMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(copyNanos.get());
+  }
+
+  /** Profile setup metric: one template build plus the copies made from it */
+  public String describeSetupCost() {
+    return String.format(
+        "template built in %d ms, %d profile copies in %d ms",
+        getTemplateBuildMillis(), getProfilesCreated(), getProfileCopyMillis());
+  }
+
+  private void buildTemplate(List<String> command) {
+    long start = System.nanoTime();
+    try {
+      ProcessBuilder pb = new ProcessBuilder(command);
+      pb.redirectErrorStream(true);
+      pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+      Process process = pb.start();
+
+      if (!process.waitFor(2, TimeUnit.MINUTES)) {
+        ExternalProcess.destroyTree(process.toHandle());
+        System.out.println("Template profile initialisation timed out, using an empty profile");
+      } else if (process.exitValue() != 0) {
+        System.out.println(
+            "Template profile initialisation failed with exit code: " + process.exitValue());
+      }
+    } catch (Exception e) {
+      System.out.println("Could not initialise template profile: " + e.getMessage());
+    }
+    templateNanos.set(System.nanoTime() - start);
+    System.out.println("Template profile ready in " + getTemplateBuildMillis() + " ms");
+  }
+
+  private static void copyTree(Path source, Path target) throws IOException {
+    try (Stream<Path> paths = Files.walk(source)) {
+      for (Path path : (Iterable<Path>) paths::iterator) {
+        Path destination = target.resolve(source.relativize(path).toString());
+        if (Files.isDirectory(path)) {
+          Files.createDirectories(destination);
+        } else {
+          Files.copy(path, destination);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,265 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * One resident LibreOffice instance with its own user installation. Conversions are started with
+ * the same {@code -env:UserInstallation}, so soffice hands them to the already running instance
+ * instead of cold starting a new office.
+ */
+public class LibreOfficeWorker {
+
+  private final int id;
+  private final String soffice;
+  private final Path profileDir;
+  private final int maxJobs;
+  private final long maxRssGrowthBytes;
+
+  private Process resident;
+  private long baselineRss;
+  private int jobs;
+  private int generation;
+
+  public LibreOfficeWorker(
+      int id, String soffice, Path profileDir, int maxJobs, long maxRssGrowthBytes) {
+    this.id = id;
+    this.soffice = soffice;
+    this.profileDir = profileDir;
+    this.maxJobs = maxJobs;
+    this.maxRssGrowthBytes = maxRssGrowthBytes;
+  }
+
+  /** Start the resident office process for this worker */
+  public synchronized void start() throws IOException {
+    Files.createDirectories(profileDir);
+
+    ProcessBuilder pb =
+        new ProcessBuilder(
+            soffice,
+            userInstallationArg(),
+            "--headless",
+            "--invisible",
+            "--nologo",
+            "--norestore",
+            "--nodefault",
+            "--accept=pipe,name=doc2pdf-worker-" + id + ";urp;");
+    pb.redirectErrorStream(true);
+    pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+    resident = pb.start();
+
+    jobs = 0;
+    generation++;
+    baselineRss = residentRss();
+    System.out.println(
+        "Worker " + id + " started office process " + resident.pid() + " (gen " + generation + ")");
+  }
+
+  /** Convert one file, handing it to the resident office through its user profile */
+  public boolean convert(String inputPath, String outputDir) throws Exception {
+    return convert(List.of(inputPath), outputDir);
+  }
+
+  /** Convert several files with a single soffice invocation, at the default timeout per file */
+  public boolean convert(List<String> inputPaths, String outputDir) throws Exception {
+    return convert(
+        inputPaths,
+        outputDir,
+        LibreOfficeWorkerPool.TIMEOUT_PER_FILE.multipliedBy(inputPaths.size()));
+  }
+
+  /**
+   * Convert several files with a single soffice invocation. Past the timeout the invocation is
+   * killed and the resident office restarted, since it is the one still busy with the document.
+   * Inputs of a timed out batch that got no PDF are then converted one at a time, each with its
+   * share of the timeout, so only a file that also times out alone is quarantined; TimeoutException
+   * names those files. An interrupt kills the invocation too.
+   */
+  public synchronized boolean convert(List<String> inputPaths, String outputDir, Duration timeout)
+      throws Exception {
+    if (resident == null || !resident.isAlive()) {
+      System.out.println("Worker " + id + " office process is gone, restarting");
+      start();
+    }
+
+    Files.createDirectories(Paths.get(outputDir));
+
+    List<String> command = new ArrayList<>();
+    command.add(soffice);
+    command.add(userInstallationArg());
+    command.add("--headless");
+    command.add("--convert-to");
+    command.add("pdf");
+    command.add("--outdir");
+    command.add(outputDir);
+    command.addAll(inputPaths);
+
+    long started = System.currentTimeMillis();
+    ExternalProcess.Result result;
+    try {
+      result = ExternalProcess.run(command, timeout, "[worker " + id + "] ");
+    } catch (InterruptedException e) {
+      System.out.println("Worker " + id + " job was cancelled");
+      recycle();
+      throw e;
+    }
+    jobs += inputPaths.size();
+
+    if (result.isTimedOut()) {
+      recycle();
+      if (inputPaths.size() == 1) {
+        ConversionQuarantine.shared()
+            .record(Paths.get(inputPaths.get(0)), "LibreOfficeConverter", timeout);
+        throw new TimeoutException(
+            "Worker "
+                + id
+                + " conversion of "
+                + inputPaths.get(0)
+                + " timed out after "
+                + timeout.toSeconds()
+                + "s");
+      }
+      return convertSingly(
+          unconverted(inputPaths, outputDir, started),
+          outputDir,
+          timeout.dividedBy(inputPaths.size()));
+    }
+
+    if (needsRecycle()) {
+      recycle();
+    }
+
+    int exitCode = result.getExitCode();
+    if (exitCode != 0) {
+      System.out.println("Conversion failed with exit code: " + exitCode);
+    }
+    return exitCode == 0;
+  }
+
+  /**
+   * Convert the survivors of a timed out batch one invocation each, so a file that hangs the office
+   * holds up and is quarantined alone
+   */
+  private boolean convertSingly(List<String> inputPaths, String outputDir, Duration timeout)
+      throws Exception {
+    System.out.println(
+        "Worker " + id + " batch timed out, retrying " + inputPaths.size() + " files one by one");
+    boolean converted = true;
+    List<String> timedOut = new ArrayList<>();
+    for (String inputPath : inputPaths) {
+      try {
+        converted &= convert(List.of(inputPath), outputDir, timeout);
+      } catch (TimeoutException e) {
+        timedOut.add(inputPath);
+      }
+    }
+    if (!timedOut.isEmpty()) {
+      throw new TimeoutException(
+          "Worker "
+              + id
+              + " conversion of "
+              + String.join(", ", timedOut)
+              + " timed out after "
+              + timeout.toSeconds()
+              + "s");
+    }
+    return converted;
+  }
+
+  /** Inputs whose PDF was not written into the output directory since the given time */
+  private static List<String> unconverted(
+      List<String> inputPaths, String outputDir, long sinceMillis) {
+    // Filesystems may keep modification times to the second only
+    long since = sinceMillis - sinceMillis % 1000;
+    List<String> unconverted = new ArrayList<>();
+    for (String inputPath : inputPaths) {
+      Path pdf = Paths.get(outputDir, LibreOfficeConverter.pdfName(Paths.get(inputPath)));
+      try {
+        if (Files.getLastModifiedTime(pdf).toMillis() >= since) {
+          continue;
+        }
+      } catch (IOException e) {
+        // No PDF
+      }
+      unconverted.add(inputPath);
+    }
+    return unconverted;
+  }
+
+  /** Stop the resident office process, including the soffice.bin child */
+  public synchronized void stop() {
+    if (resident == null) {
+      return;
+    }
+    ExternalProcess.destroyTree(resident.toHandle());
+    resident = null;
+  }
+
+  public synchronized int getJobs() {
+    return jobs;
+  }
+
+  public synchronized int getGeneration() {
+    return generation;
+  }
+
+  private boolean needsRecycle() {
+    if (maxJobs > 0 && jobs >= maxJobs) {
+      return true;
+    }
+    if (maxRssGrowthBytes > 0 && baselineRss >= 0) {
+      long rss = residentRss();
+      return rss >= 0 && rss - baselineRss > maxRssGrowthBytes;
+    }
+    return false;
+  }
+
+  private void recycle() throws IOException {
+    System.out.println("Recycling worker " + id + " after " + jobs + " jobs");
+    stop();
+    start();
+  }
+
+  private String userInstallationArg() {
+    return LibreOfficeProfileManager.userInstallationArg(profileDir);
+  }
+
+  /** Resident set size of the office process tree in bytes, or -1 where /proc is unavailable */
+  private long residentRss() {
+    if (resident == null) {
+      return -1;
+    }
+    List<ProcessHandle> tree = new ArrayList<>();
+    tree.add(resident.toHandle());
+    resident.descendants().forEach(tree::add);
+
+    long total = 0;
+    for (ProcessHandle handle : tree) {
+      long rss = readRss(handle.pid());
+      if (rss < 0) {
+        return -1;
+      }
+      total += rss;
+    }
+    return total;
+  }
+
+  private static long readRss(long pid) {
+    Path status = Paths.get("/proc", Long.toString(pid), "status");
+    try {
+      for (String line : Files.readAllLines(status)) {
+        if (line.startsWith("VmRSS:")) {
+          String kb = line.substring("VmRSS:".length()).replace("kB", "").trim();
+          return Long.parseLong(kb) * 1024;
+        }
+      }
+    } catch (Exception e) {
+      // Not on Linux, or the process just exited
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,165 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Pool of resident LibreOffice workers fed from a shared job queue. Each worker keeps one office
+ * process alive between jobs and recycles it after a number of jobs or too much RSS growth.
+ *
+ * <p>Defaults can be overridden with the system properties {@code libreoffice.soffice}, {@code
+ * libreoffice.pool.size}, {@code libreoffice.pool.maxJobs} and {@code
+ * libreoffice.pool.maxRssGrowthMb}. Pointing {@code libreoffice.soffice} at {@code
+ * scripts/fake-soffice} exercises the pool without an office install.
+ *
+ * <p>Every job has a deadline, {@code libreoffice.timeoutSeconds} (120) per file unless given, and
+ * completes with TimeoutException when its office invocation runs past it. Cancelling a job's
+ * future takes it off the queue or, once it runs, kills its office process.
+ */
+public class LibreOfficeWorkerPool implements AutoCloseable {
+
+  static final Duration TIMEOUT_PER_FILE =
+      Duration.ofSeconds(Long.getLong("libreoffice.timeoutSeconds", 120L));
+
+  private static LibreOfficeWorkerPool shared;
+
+  private final BlockingQueue<CancellableJob<LibreOfficeWorker, Boolean>> queue =
+      new LinkedBlockingQueue<>();
+  private final List<LibreOfficeWorker> workers = new ArrayList<>();
+  private final List<Thread> threads = new ArrayList<>();
+  private final LibreOfficeProfileManager profiles;
+  private volatile boolean running = true;
+
+  public LibreOfficeWorkerPool(
+      String soffice, int size, int maxJobsPerWorker, long maxRssGrowthBytes) throws IOException {
+    profiles = LibreOfficeProfileManager.forSoffice(soffice);
+
+    try {
+      for (int i = 0; i < size; i++) {
+        LibreOfficeWorker worker =
+            new LibreOfficeWorker(
+                i, soffice, profiles.acquire(), maxJobsPerWorker, maxRssGrowthBytes);
+        worker.start();
+        workers.add(worker);
+
+        Thread thread = new Thread(() -> runWorker(worker), "lo-worker-" + i);
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+      }
+    } catch (IOException | RuntimeException e) {
+      // Nobody gets a pool to close, so stop the office processes already started
+      close();
+      throw e;
+    }
+    System.out.println("Worker profiles: " + profiles.describeSetupCost());
+  }
+
+  /** Pool configured from system properties, created on first use */
+  public static synchronized LibreOfficeWorkerPool shared() throws IOException {
+    if (shared == null) {
+      shared =
+          new LibreOfficeWorkerPool(
+              System.getProperty("libreoffice.soffice", "soffice"),
+              Integer.getInteger(
+                  "libreoffice.pool.size", Runtime.getRuntime().availableProcessors()),
+              Integer.getInteger("libreoffice.pool.maxJobs", 200),
+              Long.getLong("libreoffice.pool.maxRssGrowthMb", 512L) * 1024 * 1024);
+      Runtime.getRuntime().addShutdownHook(new Thread(shared::close));
+    }
+    return shared;
+  }
+
+  /** Queue a conversion; the future completes with true when the PDF was written */
+  public CompletableFuture<Boolean> submit(String inputPath, String outputDir) {
+    return submitBatch(List.of(inputPath), outputDir);
+  }
+
+  /** Queue several files for one office invocation, at the default timeout per file */
+  public CompletableFuture<Boolean> submitBatch(List<String> inputPaths, String outputDir) {
+    return submitBatch(inputPaths, outputDir, TIMEOUT_PER_FILE.multipliedBy(inputPaths.size()));
+  }
+
+  /**
+   * Queue several files for one office invocation; completes with true on a zero exit code. Inputs
+   * the {@link DocumentProfiler} rejects fail the batch before it takes a queue slot, and so do
+   * inputs that would write the same PDF, such as {@code a/report.docx} and {@code b/report.docx}.
+   */
+  public CompletableFuture<Boolean> submitBatch(
+      List<String> inputPaths, String outputDir, Duration timeout) {
+    if (!running) {
+      throw new IllegalStateException("Worker pool is shut down");
+    }
+    Set<String> pdfNames = new HashSet<>();
+    for (String inputPath : inputPaths) {
+      String reason = DocumentProfiler.rejectionReason(new File(inputPath), false);
+      if (reason == null && !pdfNames.add(LibreOfficeConverter.pdfName(Paths.get(inputPath)))) {
+        reason = inputPath + ": another input of the batch writes the same PDF";
+      }
+      if (reason != null) {
+        return CompletableFuture.failedFuture(new IllegalArgumentException(reason));
+      }
+    }
+    CancellableJob<LibreOfficeWorker, Boolean> job =
+        new CancellableJob<>(worker -> worker.convert(inputPaths, outputDir, timeout));
+    queue.add(job);
+    return job.getResult();
+  }
+
+  public int size() {
+    return workers.size();
+  }
+
+  public LibreOfficeProfileManager getProfiles() {
+    return profiles;
+  }
+
+  public int queuedJobs() {
+    return queue.size();
+  }
+
+  private void runWorker(LibreOfficeWorker worker) {
+    while (running) {
+      CancellableJob<LibreOfficeWorker, Boolean> job;
+      try {
+        job = queue.take();
+      } catch (InterruptedException e) {
+        break;
+      }
+
+      job.run(worker);
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    threads.forEach(Thread::interrupt);
+    workers.forEach(LibreOfficeWorker::stop);
+
+    CancellableJob<LibreOfficeWorker, Boolean> job;
+    while ((job = queue.poll()) != null) {
+      job.getResult().cancel(false);
+    }
+    profiles.close();
+  }
+
+  public static void main(String[] args) throws Exception {
+    try (LibreOfficeWorkerPool pool = shared()) {
+      List<CompletableFuture<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        results.add(pool.submit("file-sample.docx", "pool-output"));
+      }
+      for (CompletableFuture<Boolean> result : results) {
+        System.out.println("Converted: " + result.join());
+      }
+    }
+  }
+}
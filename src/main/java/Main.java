@@ -2,7 +2,9 @@ public class Main {
   public static void main(String[] args) {
     String inputPath = "file-sample.docx";
     String outputPath = "output.pdf";
-    // This will work for both .doc and .docx files
+    // Picks the engine from the document's features, see RoutingDocumentConverter for the rules
+    RoutingDocumentConverter.convertToPdf(inputPath, outputPath);
+    // or pick one by hand
     //        UniversalDocToPdfConverter.convertToPdf(inputPath, outputPath);
     //    DockerLibreOfficeConverter.convertToPdf(
     //        "/Users/linh.nguyen/Desktop/personal/doc-to-pdf/file-sample.docx",
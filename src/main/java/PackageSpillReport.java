@@ -0,0 +1,53 @@
+/**
+ * How the entries of a package loaded from a stream were held: in memory, or spilled to temp files
+ * because they reached the spill threshold. Sizes are uncompressed bytes.
+ */
+public class PackageSpillReport {
+
+  private final int thresholdBytes;
+  private int memoryEntries;
+  private long memoryBytes;
+  private int diskEntries;
+  private long diskBytes;
+
+  PackageSpillReport(int thresholdBytes) {
+    this.thresholdBytes = thresholdBytes;
+  }
+
+  void add(long size, boolean spilled) {
+    if (spilled) {
+      diskEntries++;
+      diskBytes += size;
+    } else {
+      memoryEntries++;
+      memoryBytes += size;
+    }
+  }
+
+  public int getThresholdBytes() {
+    return thresholdBytes;
+  }
+
+  public int getMemoryEntries() {
+    return memoryEntries;
+  }
+
+  public long getMemoryBytes() {
+    return memoryBytes;
+  }
+
+  public int getDiskEntries() {
+    return diskEntries;
+  }
+
+  public long getDiskBytes() {
+    return diskBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "memory=%d entries/%d bytes disk=%d entries/%d bytes threshold=%d",
+        memoryEntries, memoryBytes, diskEntries, diskBytes, thresholdBytes);
+  }
+}
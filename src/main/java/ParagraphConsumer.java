@@ -0,0 +1,4 @@
+/** Receives a document's text one paragraph at a time, in document order */
+public interface ParagraphConsumer {
+  void accept(String paragraph) throws Exception;
+}
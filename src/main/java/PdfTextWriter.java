@@ -0,0 +1,36 @@
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfWriter;
+import java.io.OutputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+/**
+ * Lays out paragraphs as they arrive from an extractor. iText writes each page to the output as
+ * soon as it is full, so neither the text nor the finished pages stay in memory.
+ */
+public class PdfTextWriter implements ParagraphConsumer, AutoCloseable {
+
+  private final Document document = new Document();
+  private final PdfWriter writer;
+
+  public PdfTextWriter(OutputStream out) throws DocumentException {
+    writer = PdfWriter.getInstance(document, CloseShieldOutputStream.wrap(out));
+    document.open();
+  }
+
+  @Override
+  public void accept(String paragraph) throws DocumentException {
+    // An empty Paragraph takes no space, so blank lines are kept as a single space
+    document.add(new Paragraph(paragraph.isEmpty() ? " " : paragraph));
+  }
+
+  /** Finish the PDF; a document without text still gets its one blank page */
+  @Override
+  public void close() {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.WRITE)) {
+      writer.setPageEmpty(false);
+      document.close();
+    }
+  }
+}
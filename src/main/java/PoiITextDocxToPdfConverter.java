@@ -5,19 +5,49 @@ import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.Image;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.poi.xwpf.usermodel.*;
 
-public class PoiITextDocxToPdfConverter {
+public class PoiITextDocxToPdfConverter implements DocumentConverter {
   public static void main(String[] args) throws Exception {
-    try (FileInputStream fis = new FileInputStream("file-sample.docx");
-        XWPFDocument docx = new XWPFDocument(fis);
-        FileOutputStream fos = new FileOutputStream("output_poi_itext.pdf");
-        PdfWriter writer = new PdfWriter(fos);
+    try (FileOutputStream fos = new FileOutputStream("output_poi_itext.pdf")) {
+      new PoiITextDocxToPdfConverter()
+          .convert(new File("file-sample.docx"), fos, ConversionOptions.create());
+      System.out.println("Conversion to PDF completed successfully using Apache POI and iText!");
+    }
+  }
+
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    try (ConversionTrace trace = ConversionTrace.begin(engineId());
+        XWPFDocument docx = DocumentLoader.openDocx(in, options)) {
+      convert(docx, out);
+    }
+  }
+
+  /** Convert a file, reading it with random access instead of loading it from a stream */
+  @Override
+  public void convert(File input, OutputStream out, ConversionOptions options) throws Exception {
+    try (ConversionTrace trace = ConversionTrace.begin(engineId(), input);
+        XWPFDocument docx = DocumentLoader.openDocx(input)) {
+      convert(docx, out);
+    }
+  }
+
+  private static void convert(XWPFDocument docx, OutputStream out) throws Exception {
+    // Layout has its own stage, which leaves closing the documents, and so writing the PDF, to
+    // write
+    try (ConversionTrace.Stage write = ConversionTrace.stage(ConversionStage.WRITE);
+        PdfWriter writer = new PdfWriter(CloseShieldOutputStream.wrap(out));
         PdfDocument pdf = new PdfDocument(writer);
-        Document document = new Document(pdf)) {
+        Document document = new Document(pdf);
+        ConversionTrace.Stage layout = ConversionTrace.stage(ConversionStage.LAYOUT)) {
       List<IBodyElement> bodyElements = docx.getBodyElements();
 
       for (IBodyElement element : bodyElements) {
@@ -25,9 +55,11 @@ public class PoiITextDocxToPdfConverter {
           // Handle images within paragraphs
           for (XWPFRun run : paragraph.getRuns()) {
             for (XWPFPicture picture : run.getEmbeddedPictures()) {
-              byte[] pictureData = picture.getPictureData().getData();
-              Image image = new Image(ImageDataFactory.create(pictureData));
-              document.add(image);
+              try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.IMAGE)) {
+                byte[] pictureData = picture.getPictureData().getData();
+                Image image = new Image(ImageDataFactory.create(pictureData));
+                document.add(image);
+              }
             }
           }
           document.add(new Paragraph(paragraph.getText()));
@@ -42,7 +74,6 @@ public class PoiITextDocxToPdfConverter {
           document.add(pdfTable);
         }
       }
-      System.out.println("Conversion to PDF completed successfully using Apache POI and iText!");
     }
   }
 }
@@ -3,34 +3,56 @@ import com.itextpdf.text.Document;
 import com.itextpdf.text.pdf.PdfWriter;
 import java.io.*;
 import java.util.List;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.poi.openxml4j.opc.*;
 import org.apache.poi.xwpf.usermodel.*;
 
-public class PracticalChartConverter {
+public class PracticalChartConverter implements DocumentConverter {
 
   public static void convertWithChartDetection(String inputPath, String outputPath) {
-    try {
-      Document pdfDoc = new Document();
-      PdfWriter.getInstance(pdfDoc, new FileOutputStream(outputPath));
-      pdfDoc.open();
+    try (OutputStream out = new FileOutputStream(outputPath)) {
+      new PracticalChartConverter().convert(new File(inputPath), out, ConversionOptions.create());
 
-      FileInputStream fis = new FileInputStream(inputPath);
-      XWPFDocument document = new XWPFDocument(fis);
+      System.out.println("Conversion completed with chart detection!");
 
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    try (ConversionTrace trace = ConversionTrace.begin(engineId());
+        XWPFDocument document = DocumentLoader.openDocx(in, options)) {
+      convert(document, out);
+    }
+  }
+
+  /** Convert a file, reading it with random access instead of loading it from a stream */
+  @Override
+  public void convert(File input, OutputStream out, ConversionOptions options) throws Exception {
+    try (ConversionTrace trace = ConversionTrace.begin(engineId(), input);
+        XWPFDocument document = DocumentLoader.openDocx(input)) {
+      convert(document, out);
+    }
+  }
+
+  private static void convert(XWPFDocument document, OutputStream out) throws Exception {
+    Document pdfDoc = new Document();
+    PdfWriter.getInstance(pdfDoc, CloseShieldOutputStream.wrap(out));
+    pdfDoc.open();
+
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LAYOUT)) {
       // Process regular content
       processDocumentContent(document, pdfDoc);
 
       // Detect and handle charts
       detectAndProcessCharts(document, pdfDoc);
+    }
 
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.WRITE)) {
       pdfDoc.close();
-      document.close();
-      fis.close();
-
-      System.out.println("Conversion completed with chart detection!");
-
-    } catch (Exception e) {
-      e.printStackTrace();
     }
   }
 
@@ -102,7 +124,7 @@ public class PracticalChartConverter {
   }
 
   private static void addImageToPdf(byte[] imageData, Document pdfDoc) {
-    try {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.IMAGE)) {
       Image image = Image.getInstance(imageData);
       if (image.getWidth() > 500) {
         image.scaleToFit(500, 400);
@@ -0,0 +1,37 @@
+import java.util.concurrent.ForkJoinPool;
+
+/** Size and thread pool for rendering charts */
+public class RenderOptions {
+
+  private int width = 800;
+  private int height = 600;
+  private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+  public static RenderOptions create() {
+    return new RenderOptions();
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public RenderOptions size(int width, int height) {
+    this.width = width;
+    this.height = height;
+    return this;
+  }
+
+  /** Pool the charts are rendered on; the common pool by default */
+  public ForkJoinPool getPool() {
+    return pool;
+  }
+
+  public RenderOptions pool(ForkJoinPool pool) {
+    this.pool = pool;
+    return this;
+  }
+}
@@ -0,0 +1,245 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Picks an engine per document from its {@link DocumentFeatures}, so simple documents go to a fast
+ * in-process engine and only those it cannot render faithfully go to an office process.
+ *
+ * <p>Rules are read from {@code router.rules} as {@code condition->engine} pairs separated by
+ * {@code ;} and tried in order. A condition is {@code default} or one or more feature tests joined
+ * by {@code &}, such as {@code charts>0} or {@code fonts<=4&tables=0}. Every decision is printed
+ * with the rule that made it and the features it saw.
+ */
+public class RoutingDocumentConverter implements DocumentConverter {
+
+  /** Anything an in-process engine would drop or misplace goes to the office engine */
+  public static final String DEFAULT_RULES =
+      "doc>0->office;"
+          + "charts>0->office;"
+          + "smartArt>0->office;"
+          + "floatingShapes>0->office;"
+          + "textBoxes>0->office;"
+          + "embeddedObjects>0->office;"
+          + "default->xdocreport";
+
+  private final Map<String, DocumentConverter> engines = new LinkedHashMap<>();
+  private final List<Rule> rules;
+
+  public RoutingDocumentConverter(String rules) {
+    this.rules = Rule.parseAll(rules);
+    engines.put("xdocreport", new DocxToPdfConverter());
+    engines.put("text", new UniversalDocToPdfConverter());
+    engines.put("office", new LibreOfficeConverter());
+  }
+
+  /** Router with the rules from {@code router.rules}, or the default rules */
+  public static RoutingDocumentConverter fromSystemProperties() {
+    return new RoutingDocumentConverter(System.getProperty("router.rules", DEFAULT_RULES));
+  }
+
+  public static void convertToPdf(String inputPath, String outputPath) {
+    try (OutputStream out = new FileOutputStream(outputPath)) {
+      fromSystemProperties().convert(new File(inputPath), out, ConversionOptions.create());
+      System.out.println("Conversion completed successfully!");
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /** Make an engine available to rules under a name, replacing any engine of that name */
+  public RoutingDocumentConverter register(String name, DocumentConverter engine) {
+    engines.put(name, engine);
+    return this;
+  }
+
+  /** The engine registered under a name, or null */
+  public DocumentConverter getEngine(String name) {
+    return engines.get(name);
+  }
+
+  public Set<String> getEngineNames() {
+    return Collections.unmodifiableSet(engines.keySet());
+  }
+
+  /** Name of the engine the rules pick for these features */
+  public String route(DocumentFeatures features) {
+    return match(features).engine;
+  }
+
+  /**
+   * Name of the engine the rules pick for the file, logging the decision with the rule and the
+   * features behind it, which also go to the active trace
+   */
+  public String route(File input) throws IOException {
+    long start = System.nanoTime();
+    DocumentFeatures features = DocumentFeatures.scan(input);
+    Rule rule = match(features);
+    long scanMillis = (System.nanoTime() - start) / 1_000_000;
+    if (ConversionTrace.isActive()) {
+      for (String name : DocumentFeatures.NAMES) {
+        ConversionTrace.feature(name, Math.round(features.get(name)));
+      }
+    }
+
+    System.out.println(
+        "Routing "
+            + input.getName()
+            + " to "
+            + rule.engine
+            + " by rule '"
+            + rule
+            + "' (scanned in "
+            + scanMillis
+            + " ms: "
+            + features
+            + ")");
+    return rule.engine;
+  }
+
+  @Override
+  public void convert(File input, OutputStream out, ConversionOptions options) throws Exception {
+    // The engine's own trace joins this one, which adds the scan and the features behind the route
+    try (ConversionTrace trace = ConversionTrace.begin(engineId(), input)) {
+      engines.get(route(input)).convert(input, out, options);
+    }
+  }
+
+  /** The features can only be read from a file, so streams are spooled to scratch space first */
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    Path dir = ScratchSpace.createTempDirectory("router");
+    try {
+      Path input = dir.resolve("input");
+      Files.copy(in, input);
+      convert(input.toFile(), out, options);
+    } finally {
+      ScratchSpace.delete(dir);
+    }
+  }
+
+  @Override
+  public String engineId() {
+    return "router";
+  }
+
+  private Rule match(DocumentFeatures features) {
+    for (Rule rule : rules) {
+      if (rule.matches(features)) {
+        if (!engines.containsKey(rule.engine)) {
+          throw new IllegalStateException("No engine registered as " + rule.engine);
+        }
+        return rule;
+      }
+    }
+    throw new IllegalStateException("No routing rule matches and there is no default rule");
+  }
+
+  /** One {@code condition->engine} entry of the rules */
+  private static class Rule {
+    final String text;
+    final List<Test> tests = new ArrayList<>();
+    final String engine;
+
+    Rule(String text) {
+      this.text = text;
+      int arrow = text.indexOf("->");
+      if (arrow < 0) {
+        throw new IllegalArgumentException("Routing rule has no ->engine: " + text);
+      }
+      engine = text.substring(arrow + 2).trim();
+
+      String condition = text.substring(0, arrow).trim();
+      if (!condition.equals("default")) {
+        for (String test : condition.split("&")) {
+          tests.add(new Test(test.trim()));
+        }
+      }
+    }
+
+    static List<Rule> parseAll(String rules) {
+      List<Rule> parsed = new ArrayList<>();
+      for (String rule : rules.split(";")) {
+        if (!rule.isBlank()) {
+          parsed.add(new Rule(rule.trim()));
+        }
+      }
+      return parsed;
+    }
+
+    boolean matches(DocumentFeatures features) {
+      for (Test test : tests) {
+        if (!test.matches(features.get(test.feature))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      return text;
+    }
+  }
+
+  /** A comparison of one feature with a number, such as {@code charts>0} */
+  private static class Test {
+    private static final String[] OPERATORS = {">=", "<=", ">", "<", "="};
+
+    final String feature;
+    final String operator;
+    final double value;
+
+    Test(String test) {
+      String op = null;
+      int at = -1;
+      for (String candidate : OPERATORS) {
+        at = test.indexOf(candidate);
+        if (at > 0) {
+          op = candidate;
+          break;
+        }
+      }
+      if (op == null) {
+        throw new IllegalArgumentException("Routing test needs a comparison: " + test);
+      }
+
+      feature = test.substring(0, at).trim();
+      operator = op;
+      if (!DocumentFeatures.NAMES.contains(feature)) {
+        throw new IllegalArgumentException("Unknown document feature in rule: " + test);
+      }
+      try {
+        value = Double.parseDouble(test.substring(at + op.length()).trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Routing test needs a number: " + test);
+      }
+    }
+
+    boolean matches(double actual) {
+      switch (operator) {
+        case ">=":
+          return actual >= value;
+        case "<=":
+          return actual <= value;
+        case ">":
+          return actual > value;
+        case "<":
+          return actual < value;
+        default:
+          return actual == value;
+      }
+    }
+  }
+}
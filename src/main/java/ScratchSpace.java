@@ -0,0 +1,37 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Scratch directories for engines that can only work on files. Uses the {@code /dev/shm} tmpfs when
+ * it is available, so staged documents stay in memory instead of going to disk.
+ */
+public class ScratchSpace {
+
+  private static final Path SHARED_MEMORY = Paths.get("/dev/shm");
+
+  public static Path createTempDirectory(String prefix) throws IOException {
+    if (Files.isDirectory(SHARED_MEMORY) && Files.isWritable(SHARED_MEMORY)) {
+      return Files.createTempDirectory(SHARED_MEMORY, prefix);
+    }
+    return Files.createTempDirectory(prefix);
+  }
+
+  /** Delete a scratch directory and everything in it */
+  public static void delete(Path dir) throws IOException {
+    if (!Files.exists(dir)) {
+      return;
+    }
+    List<Path> paths = new ArrayList<>();
+    try (Stream<Path> stream = Files.walk(dir)) {
+      stream.forEach(paths::add);
+    }
+    for (int i = paths.size() - 1; i >= 0; i--) {
+      Files.deleteIfExists(paths.get(i));
+    }
+  }
+}
@@ -34,18 +34,20 @@ public class SimplifiedDocxToPdfConverter {
   }
 
   public static void convertDocxImagesToPdf(String docxPath, String pdfPath) throws Exception {
-    // Extract images from DOCX
-    List<byte[]> imageData = extractAllImagesFromDocx(docxPath);
+    try (ConversionTrace trace =
+        ConversionTrace.begin("SimplifiedDocxToPdfConverter", new File(docxPath))) {
+      // Extract images from DOCX
+      List<byte[]> imageData = extractAllImagesFromDocx(docxPath);
 
-    // Create PDF with extracted images
-    createPdfWithExtractedImages(imageData, pdfPath);
+      // Create PDF with extracted images
+      createPdfWithExtractedImages(imageData, pdfPath);
+    }
   }
 
   private static List<byte[]> extractAllImagesFromDocx(String docxPath) throws Exception {
     List<byte[]> imageDataList = new ArrayList<>();
 
-    try (FileInputStream fis = new FileInputStream(docxPath);
-        XWPFDocument document = new XWPFDocument(fis)) {
+    try (XWPFDocument document = DocumentLoader.openDocx(new File(docxPath))) {
 
       System.out.println("Successfully opened DOCX document");
 
@@ -136,7 +138,7 @@ public class SimplifiedDocxToPdfConverter {
     for (int i = 0; i < imageDataList.size(); i++) {
       byte[] imageBytes = imageDataList.get(i);
 
-      try {
+      try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.IMAGE)) {
         // Create iText Image
         ImageData imageData = ImageDataFactory.create(imageBytes);
         Image image = new Image(imageData);
@@ -190,14 +192,15 @@ public class SimplifiedDocxToPdfConverter {
       }
     }
 
-    document.close();
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.WRITE)) {
+      document.close();
+    }
     System.out.println("PDF created successfully: " + pdfPath);
   }
 
   // Alternative method to extract specific file types
   public static void extractSpecificImageTypes(String docxPath, String outputDir) throws Exception {
-    try (FileInputStream fis = new FileInputStream(docxPath);
-        XWPFDocument document = new XWPFDocument(fis)) {
+    try (XWPFDocument document = DocumentLoader.openDocx(new File(docxPath))) {
 
       List<XWPFPictureData> pictures = document.getAllPictures();
 
@@ -1,81 +1,101 @@
-import com.itextpdf.text.Document;
-import com.itextpdf.text.Paragraph;
-import com.itextpdf.text.pdf.PdfWriter;
 import java.io.*;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.apache.poi.hwpf.HWPFDocument;
-import org.apache.poi.hwpf.extractor.WordExtractor;
+import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.poifs.filesystem.FileMagic;
-import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 
-public class SmartDocConverter {
+public class SmartDocConverter implements DocumentConverter {
 
   public static void convertToPdf(String inputPath, String outputPath) {
-    try {
-      // Use BufferedInputStream which supports mark()
-      FileInputStream fis = new FileInputStream(inputPath);
-      BufferedInputStream bis = new BufferedInputStream(fis);
+    try (OutputStream out = new FileOutputStream(outputPath)) {
+      new SmartDocConverter()
+          .convert(new File(inputPath), out, ConversionOptions.forFile(inputPath));
+      System.out.println("Conversion completed successfully!");
 
-      FileMagic fileMagic = FileMagic.valueOf(bis);
-      bis.close();
-      fis.close();
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
 
-      String text = "";
+  /**
+   * Convert a file, sniffing and parsing through one open channel. A .doc is read through a
+   * file-backed POIFSFileSystem on that channel and a .docx through a random-access OPCPackage, so
+   * neither is copied into memory first.
+   */
+  @Override
+  public void convert(File input, OutputStream out, ConversionOptions options) throws Exception {
+    try (ConversionTrace trace = ConversionTrace.begin(engineId(), input);
+        FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+      // Positional reads leave the channel at the start for POIFS
+      ByteBuffer header = ByteBuffer.allocate(64);
+      while (header.hasRemaining() && channel.read(header, header.position()) > 0) {}
+      FileMagic fileMagic = FileMagic.valueOf(Arrays.copyOf(header.array(), header.position()));
 
       switch (fileMagic) {
         case OLE2:
-          // It's a .doc file
-          text = extractFromDoc(inputPath);
+          try (HWPFDocument document = openDoc(channel);
+              PdfTextWriter pdf = new PdfTextWriter(out);
+              ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LAYOUT)) {
+            DocTextReader.read(document, pdf);
+          }
           break;
         case OOXML:
-          // It's a .docx file
-          text = extractFromDocx(inputPath);
+          // OPCPackage opens the zip by name to read the central directory and seek to entries
+          OPCPackage pkg = DocumentLoader.openPackage(input);
+          try (PdfTextWriter pdf = new PdfTextWriter(out);
+              ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LAYOUT)) {
+            DocxTextReader.read(pkg, pdf);
+          } finally {
+            pkg.revert();
+          }
           break;
         default:
           throw new IllegalArgumentException("Unsupported file type: " + fileMagic);
       }
-
-      createPdf(text, outputPath);
-      System.out.println("Conversion completed successfully!");
-
-    } catch (Exception e) {
-      e.printStackTrace();
     }
   }
 
-  private static String extractFromDoc(String filePath) throws Exception {
-    FileInputStream fis = new FileInputStream(filePath);
-    HWPFDocument document = new HWPFDocument(fis);
-    WordExtractor extractor = new WordExtractor(document);
-    String text = extractor.getText();
-
-    extractor.close();
-    document.close();
-    fis.close();
-
-    return text;
+  private static HWPFDocument openDoc(FileChannel channel) throws IOException {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LOAD)) {
+      POIFSFileSystem fs = new POIFSFileSystem(channel, true, false);
+      try {
+        return new HWPFDocument(fs);
+      } catch (IOException | RuntimeException e) {
+        fs.close();
+        throw e;
+      }
+    }
   }
 
-  private static String extractFromDocx(String filePath) throws Exception {
-    FileInputStream fis = new FileInputStream(filePath);
-    XWPFDocument document = new XWPFDocument(fis);
-    XWPFWordExtractor extractor = new XWPFWordExtractor(document);
-    String text = extractor.getText();
-
-    extractor.close();
-    document.close();
-    fis.close();
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    // Use BufferedInputStream which supports mark()
+    BufferedInputStream bis = new BufferedInputStream(CloseShieldInputStream.wrap(in));
 
-    return text;
-  }
+    FileMagic fileMagic = FileMagic.valueOf(bis);
+    if (fileMagic != FileMagic.OLE2 && fileMagic != FileMagic.OOXML) {
+      throw new IllegalArgumentException("Unsupported file type: " + fileMagic);
+    }
 
-  private static void createPdf(String text, String outputPath) throws Exception {
-    Document pdfDoc = new Document();
-    PdfWriter.getInstance(pdfDoc, new FileOutputStream(outputPath));
-    pdfDoc.open();
-    pdfDoc.add(new Paragraph(text));
-    pdfDoc.close();
+    // Paragraphs are written to the PDF as the extractor produces them, so reading the document
+    // is part of the layout stage
+    try (ConversionTrace trace = ConversionTrace.begin(engineId());
+        PdfTextWriter pdf = new PdfTextWriter(out);
+        ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LAYOUT)) {
+      if (fileMagic == FileMagic.OLE2) {
+        // It's a .doc file
+        DocTextReader.read(bis, pdf);
+      } else {
+        // It's a .docx file, streamed without loading the whole XWPFDocument
+        DocxTextReader.read(bis, pdf);
+      }
+    }
   }
 }
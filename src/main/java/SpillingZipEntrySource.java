@@ -0,0 +1,163 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.poi.openxml4j.util.ZipEntrySource;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.apache.poi.util.TempFile;
+
+/**
+ * The entries of a zip stream, each kept in memory or, once it reaches the spill threshold, in a
+ * temp file. Threshold and entry limit belong to the instance, so unlike POI's
+ * ZipInputStreamZipEntrySource it changes no JVM-wide setting that loads on other threads would
+ * see. Temp files are deleted when the source is closed.
+ */
+public final class SpillingZipEntrySource implements ZipEntrySource {
+
+  // Entries smaller than this are not checked for their inflate ratio, as in POI
+  private static final long RATIO_GRACE_BYTES = 100 * 1024;
+
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+  private final PackageSpillReport report;
+  private boolean closed;
+
+  /** Read every entry of the stream, which is left open */
+  public SpillingZipEntrySource(InputStream in, int thresholdBytes, long maxEntryBytes)
+      throws IOException {
+    report = new PackageSpillReport(thresholdBytes);
+    try {
+      ZipArchiveInputStream zip = new ZipArchiveInputStream(in);
+      ZipArchiveEntry zipEntry;
+      while ((zipEntry = zip.getNextZipEntry()) != null) {
+        Entry entry = read(zip, zipEntry.getName(), thresholdBytes, maxEntryBytes);
+        entries.put(zipEntry.getName(), entry);
+        if (!zipEntry.isDirectory()) {
+          report.add(entry.getSize(), entry.file != null);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  private static Entry read(
+      ZipArchiveInputStream zip, String name, int thresholdBytes, long maxEntryBytes)
+      throws IOException {
+    long compressedStart = zip.getCompressedCount();
+    ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    File file = null;
+    OutputStream out = memory;
+    long size = 0;
+    try {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = zip.read(buffer)) != -1) {
+        size += read;
+        if (size > maxEntryBytes) {
+          throw new IOException(
+              "Zip entry " + name + " inflates beyond " + maxEntryBytes + " bytes");
+        }
+        double ratio = (double) (zip.getCompressedCount() - compressedStart) / size;
+        if (size > RATIO_GRACE_BYTES && ratio < ZipSecureFile.getMinInflateRatio()) {
+          throw new IOException("Zip entry " + name + " looks like a zip bomb");
+        }
+        if (file == null && size >= thresholdBytes) {
+          file = TempFile.createTempFile("docx-entry", ".tmp");
+          out = Files.newOutputStream(file.toPath());
+          memory.writeTo(out);
+          memory = null;
+        }
+        out.write(buffer, 0, read);
+      }
+      out.close();
+    } catch (IOException | RuntimeException e) {
+      if (file != null) {
+        out.close();
+        Files.deleteIfExists(file.toPath());
+      }
+      throw e;
+    }
+    return new Entry(name, size, memory != null ? memory.toByteArray() : null, file);
+  }
+
+  public PackageSpillReport getReport() {
+    return report;
+  }
+
+  @Override
+  public Enumeration<? extends ZipArchiveEntry> getEntries() {
+    return Collections.enumeration(entries.values());
+  }
+
+  @Override
+  public ZipArchiveEntry getEntry(String path) {
+    String name = path.replace('\\', '/');
+    Entry entry = entries.get(name);
+    if (entry != null) {
+      return entry;
+    }
+    for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+      if (name.equalsIgnoreCase(candidate.getKey())) {
+        return candidate.getValue();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public InputStream getInputStream(ZipArchiveEntry zipEntry) throws IOException {
+    Entry entry = entries.get(zipEntry.getName());
+    if (entry == null) {
+      throw new IOException("No zip entry " + zipEntry.getName());
+    }
+    return entry.file != null
+        ? Files.newInputStream(entry.file.toPath())
+        : new ByteArrayInputStream(entry.data);
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException failure = null;
+    for (Entry entry : entries.values()) {
+      if (entry.file != null) {
+        try {
+          Files.deleteIfExists(entry.file.toPath());
+        } catch (IOException e) {
+          failure = e;
+        }
+      }
+    }
+    entries.clear();
+    closed = true;
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    return closed;
+  }
+
+  private static class Entry extends ZipArchiveEntry {
+    final byte[] data;
+    final File file;
+
+    Entry(String name, long size, byte[] data, File file) {
+      super(name);
+      setSize(size);
+      this.data = data;
+      this.file = file;
+    }
+  }
+}
@@ -1,58 +1,62 @@
-import com.itextpdf.text.Document;
-import com.itextpdf.text.Paragraph;
-import com.itextpdf.text.pdf.PdfWriter;
 import java.io.*;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.apache.poi.hwpf.HWPFDocument;
-import org.apache.poi.hwpf.extractor.WordExtractor;
-import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.openxml4j.opc.OPCPackage;
 
-public class UniversalDocToPdfConverter {
+public class UniversalDocToPdfConverter implements DocumentConverter {
 
   public static void convertToPdf(String inputPath, String outputPath) {
-    try {
-      String text = extractText(inputPath);
-      createPdf(text, outputPath);
+    try (OutputStream out = new FileOutputStream(outputPath)) {
+      new UniversalDocToPdfConverter()
+          .convert(new File(inputPath), out, ConversionOptions.forFile(inputPath));
       System.out.println("Conversion completed successfully!");
     } catch (Exception e) {
       e.printStackTrace();
     }
   }
 
-  private static String extractText(String filePath) throws Exception {
-    FileInputStream fis = new FileInputStream(filePath);
-    String text;
+  @Override
+  public void convert(InputStream in, OutputStream out, ConversionOptions options)
+      throws Exception {
+    InputStream input = new BufferedInputStream(CloseShieldInputStream.wrap(in));
+    DocumentFormat format = DocumentFormat.resolve(input, options);
 
-    try {
-      if (filePath.toLowerCase().endsWith(".docx")) {
-        // Handle DOCX files
-        XWPFDocument document = new XWPFDocument(fis);
-        XWPFWordExtractor extractor = new XWPFWordExtractor(document);
-        text = extractor.getText();
-        extractor.close();
-        document.close();
-      } else if (filePath.toLowerCase().endsWith(".doc")) {
-        // Handle DOC files
-        HWPFDocument document = new HWPFDocument(fis);
-        WordExtractor extractor = new WordExtractor(document);
-        text = extractor.getText();
-        extractor.close();
-        document.close();
+    // Paragraphs are written to the PDF as the extractor produces them, so reading the document
+    // is part of the layout stage
+    try (ConversionTrace trace = ConversionTrace.begin(engineId());
+        PdfTextWriter pdf = new PdfTextWriter(out);
+        ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LAYOUT)) {
+      if (format == DocumentFormat.DOCX) {
+        // Handle DOCX files, streaming the text out of the package
+        DocxTextReader.read(input, pdf);
       } else {
-        throw new IllegalArgumentException("Unsupported file format. Use .doc or .docx files.");
+        // Handle DOC files
+        DocTextReader.read(input, pdf);
       }
-    } finally {
-      fis.close();
     }
-
-    return text;
   }
 
-  private static void createPdf(String text, String outputPath) throws Exception {
-    Document pdfDoc = new Document();
-    PdfWriter.getInstance(pdfDoc, new FileOutputStream(outputPath));
-    pdfDoc.open();
-    pdfDoc.add(new Paragraph(text));
-    pdfDoc.close();
+  /** Convert a file, reading it with random access instead of loading it from a stream */
+  @Override
+  public void convert(File input, OutputStream out, ConversionOptions options) throws Exception {
+    DocumentFormat format = DocumentFormat.resolve(input, options);
+
+    try (ConversionTrace trace = ConversionTrace.begin(engineId(), input)) {
+      if (format == DocumentFormat.DOCX) {
+        OPCPackage pkg = DocumentLoader.openPackage(input);
+        try (PdfTextWriter pdf = new PdfTextWriter(out);
+            ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LAYOUT)) {
+          DocxTextReader.read(pkg, pdf);
+        } finally {
+          pkg.revert();
+        }
+      } else {
+        try (HWPFDocument document = DocumentLoader.openDoc(input);
+            PdfTextWriter pdf = new PdfTextWriter(out);
+            ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.LAYOUT)) {
+          DocTextReader.read(document, pdf);
+        }
+      }
+    }
   }
 }
@@ -2,280 +2,295 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import javax.imageio.ImageIO;
 import org.apache.poi.xwpf.usermodel.XWPFChart;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.data.category.DefaultCategoryDataset;
-import org.jfree.data.general.DefaultPieDataset;
-import org.openxmlformats.schemas.drawingml.x2006.chart.*;
 
 public class XWPFChartToImageConverter {
 
-  /** Convert XWPFChart to BufferedImage using JFreeChart */
-  public static BufferedImage convertChartToImage(XWPFChart chart, int width, int height) {
-    try {
-      CTChart ctChart = chart.getCTChart();
-
-      // Determine chart type and create appropriate JFreeChart
-      JFreeChart jFreeChart = createJFreeChartFromCTChart(ctChart);
-
-      if (jFreeChart != null) {
-        return jFreeChart.createBufferedImage(width, height);
-      } else {
-        return createFallbackChartImage(chart, width, height);
-      }
-
-    } catch (Exception e) {
-      System.err.println("Error converting chart: " + e.getMessage());
-      return createFallbackChartImage(chart, width, height);
+  private static final ChartRenderCache CACHE =
+      new ChartRenderCache(Long.getLong("chart.cache.maxMb", 64L) * 1024 * 1024);
+
+  /**
+   * Render a chart as PNG, serving charts with identical XML and size from the render cache instead
+   * of parsing and drawing them again
+   */
+  public static byte[] convertChartToPng(XWPFChart chart, int width, int height)
+      throws IOException {
+    String digest = chartDigest(chart);
+    String key = imageKey(digest, width, height);
+    byte[] png = CACHE.get(key);
+    if (png == null) {
+      png = encodePng(renderChart(readChartData(chart, digest), width, height));
+      CACHE.put(key, png);
     }
+    return png;
   }
 
-  /** Create JFreeChart from CTChart based on chart type */
-  private static JFreeChart createJFreeChartFromCTChart(CTChart ctChart) {
-    try {
-      // Get chart title
-      String title = "";
-      if (ctChart.getTitle() != null && ctChart.getTitle().getTx() != null) {
-        if (ctChart.getTitle().getTx().getRich() != null) {
-          title = extractTextFromRich(ctChart.getTitle().getTx().getRich());
-        }
-      }
-
-      // Check for different chart types
-      CTPlotArea plotArea = ctChart.getPlotArea();
-
-      // Bar Chart
-      if (plotArea.getBarChartArray().length > 0) {
-        return createBarChart(plotArea.getBarChartArray(0), title);
-      }
-
-      // Line Chart
-      if (plotArea.getLineChartArray().length > 0) {
-        return createLineChart(plotArea.getLineChartArray(0), title);
-      }
-
-      // Pie Chart
-      if (plotArea.getPieChartArray().length > 0) {
-        return createPieChart(plotArea.getPieChartArray(0), title);
-      }
+  public static ChartRenderCache getCache() {
+    return CACHE;
+  }
 
-      // Area Chart
-      if (plotArea.getAreaChartArray().length > 0) {
-        return createAreaChart(plotArea.getAreaChartArray(0), title);
+  /** SHA-256 of the chart part as stored in the package */
+  private static String chartDigest(XWPFChart chart) throws IOException {
+    try (InputStream in = chart.getPackagePart().getInputStream()) {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
       }
-
-    } catch (Exception e) {
-      System.err.println("Error creating JFreeChart: " + e.getMessage());
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
     }
-
-    return null;
   }
 
-  /** Create Bar Chart from CTBarChart */
-  private static JFreeChart createBarChart(CTBarChart barChart, String title) {
-    DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-
+  /** The chart's digest, or null if the part cannot be read, in which case nothing is cached */
+  private static String chartDigestOrNull(XWPFChart chart) {
     try {
-      CTBarSer[] series = barChart.getSerArray();
-
-      for (CTBarSer ser : series) {
-        String seriesName = getSeriesName(ser.getTx());
-
-        // Get categories (X-axis labels)
-        String[] categories = getCategories(ser.getCat());
-
-        // Get values (Y-axis values)
-        double[] values = getValues(ser.getVal());
-
-        // Add data to dataset
-        for (int i = 0; i < Math.min(categories.length, values.length); i++) {
-          dataset.addValue(values[i], seriesName, categories[i]);
-        }
-      }
-
-      return ChartFactory.createBarChart(
-          title, "Category", "Value", dataset, PlotOrientation.VERTICAL, true, true, false);
-
-    } catch (Exception e) {
-      System.err.println("Error creating bar chart: " + e.getMessage());
+      return chartDigest(chart);
+    } catch (IOException e) {
+      System.err.println("Error reading chart part: " + e.getMessage());
+      return null;
     }
-
-    return null;
   }
 
-  /** Create Line Chart from CTLineChart */
-  private static JFreeChart createLineChart(CTLineChart lineChart, String title) {
-    DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-
-    try {
-      CTLineSer[] series = lineChart.getSerArray();
+  private static String imageKey(String digest, int width, int height) {
+    return digest + ":" + width + "x" + height;
+  }
 
-      for (CTLineSer ser : series) {
-        String seriesName = getSeriesName(ser.getTx());
+  /** Convert XWPFChart to BufferedImage using JFreeChart, through the render cache */
+  public static BufferedImage convertChartToImage(XWPFChart chart, int width, int height) {
+    String digest = chartDigestOrNull(chart);
+    if (digest == null) {
+      return renderChart(extractChartData(chart), width, height);
+    }
 
-        // Get categories and values
-        String[] categories = getCategories(ser.getCat());
-        double[] values = getValues(ser.getVal());
+    String key = imageKey(digest, width, height);
+    byte[] png = CACHE.get(key);
+    if (png != null) {
+      return decodePng(png);
+    }
+    BufferedImage image = renderChart(readChartData(chart, digest), width, height);
+    CACHE.put(key, encodePng(image));
+    return image;
+  }
 
-        // Add data to dataset
-        for (int i = 0; i < Math.min(categories.length, values.length); i++) {
-          dataset.addValue(values[i], seriesName, categories[i]);
-        }
+  /**
+   * Render all charts of a document, returning the images in document order. Cache lookups and
+   * reading the chart data happen on the calling thread because the document package is not
+   * thread-safe, and charts found in the cache are not read at all. Only the rendering, or decoding
+   * of cached images, runs in parallel on the options' pool, where it is traced as the time spent
+   * waiting for it.
+   */
+  public static List<BufferedImage> renderAll(List<XWPFChart> charts, RenderOptions options) {
+    int width = options.getWidth();
+    int height = options.getHeight();
+    List<String> keys = new ArrayList<>(charts.size());
+    List<byte[]> cached = new ArrayList<>(charts.size());
+    List<ChartData> data = new ArrayList<>(charts.size());
+    for (XWPFChart chart : charts) {
+      String digest = chartDigestOrNull(chart);
+      String key = digest != null ? imageKey(digest, width, height) : null;
+      byte[] png = key != null ? CACHE.get(key) : null;
+      keys.add(key);
+      cached.add(png);
+      if (png != null) {
+        data.add(null);
+      } else {
+        data.add(digest != null ? readChartData(chart, digest) : extractChartData(chart));
       }
-
-      return ChartFactory.createLineChart(
-          title, "Category", "Value", dataset, PlotOrientation.VERTICAL, true, true, false);
-
-    } catch (Exception e) {
-      System.err.println("Error creating line chart: " + e.getMessage());
     }
 
-    return null;
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.CHART_RENDER)) {
+      return options
+          .getPool()
+          .submit(
+              () ->
+                  IntStream.range(0, charts.size())
+                      .parallel()
+                      .mapToObj(
+                          i -> {
+                            if (cached.get(i) != null) {
+                              return decodePng(cached.get(i));
+                            }
+                            BufferedImage image = renderChart(data.get(i), width, height);
+                            if (keys.get(i) != null) {
+                              CACHE.put(keys.get(i), encodePng(image));
+                            }
+                            return image;
+                          })
+                      .collect(Collectors.toList()))
+          .join();
+    }
   }
 
-  /** Create Pie Chart from CTPieChart */
-  private static JFreeChart createPieChart(CTPieChart pieChart, String title) {
-    DefaultPieDataset dataset = new DefaultPieDataset();
-
-    try {
-      CTPieSer[] series = pieChart.getSerArray();
-
-      if (series.length > 0) {
-        CTPieSer ser = series[0]; // Usually only one series in pie chart
+  /**
+   * Chart data for drawing a chart as vectors, served from the cache when a chart part with the
+   * same XML was read before
+   */
+  public static ChartData readChartData(XWPFChart chart) {
+    String digest = chartDigestOrNull(chart);
+    return digest != null ? readChartData(chart, digest) : extractChartData(chart);
+  }
 
-        // Get categories and values
-        String[] categories = getCategories(ser.getCat());
-        double[] values = getValues(ser.getVal());
+  private static ChartData readChartData(XWPFChart chart, String digest) {
+    String key = digest + ":data";
+    ChartData data = CACHE.getChartData(key);
+    if (data == null) {
+      data = extractChartData(chart);
+      CACHE.putChartData(key, data);
+    }
+    return data;
+  }
 
-        // Add data to dataset
-        for (int i = 0; i < Math.min(categories.length, values.length); i++) {
-          dataset.setValue(categories[i], values[i]);
-        }
-      }
+  private static byte[] encodePng(BufferedImage image) {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.CHART_RENDER)) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      ImageIO.write(image, "PNG", baos);
+      return baos.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 
-      return ChartFactory.createPieChart(title, dataset, true, true, false);
+  private static BufferedImage decodePng(byte[] png) {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.CHART_RENDER)) {
+      return ImageIO.read(new ByteArrayInputStream(png));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 
+  /** Read the chart type, title and cached series values out of the chart part */
+  public static ChartData extractChartData(XWPFChart chart) {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.CHART_EXTRACT)) {
+      return ChartPartReader.read(chart.getPackagePart().getInputStream());
     } catch (Exception e) {
-      System.err.println("Error creating pie chart: " + e.getMessage());
+      System.err.println("Error extracting chart data: " + e.getMessage());
+      return ChartData.unsupported("");
     }
-
-    return null;
   }
 
-  /** Create Area Chart from CTAreaChart */
-  private static JFreeChart createAreaChart(CTAreaChart areaChart, String title) {
-    DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-
-    try {
-      CTAreaSer[] series = areaChart.getSerArray();
+  /** Render extracted chart data; safe to call from any thread */
+  public static BufferedImage renderChart(ChartData data, int width, int height) {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.CHART_RENDER)) {
+      JFreeChart jFreeChart = createJFreeChart(data);
 
-      for (CTAreaSer ser : series) {
-        String seriesName = getSeriesName(ser.getTx());
-
-        // Get categories and values
-        String[] categories = getCategories(ser.getCat());
-        double[] values = getValues(ser.getVal());
-
-        // Add data to dataset
-        for (int i = 0; i < Math.min(categories.length, values.length); i++) {
-          dataset.addValue(values[i], seriesName, categories[i]);
-        }
+      if (jFreeChart != null) {
+        return jFreeChart.createBufferedImage(width, height);
+      } else {
+        return createFallbackChartImage(data.getTitle(), width, height);
       }
 
-      return ChartFactory.createAreaChart(
-          title, "Category", "Value", dataset, PlotOrientation.VERTICAL, true, true, false);
-
     } catch (Exception e) {
-      System.err.println("Error creating area chart: " + e.getMessage());
+      System.err.println("Error converting chart: " + e.getMessage());
+      return createFallbackChartImage(data.getTitle(), width, height);
     }
-
-    return null;
   }
 
-  /** Extract series name from CTSerTx */
-  private static String getSeriesName(CTSerTx serTx) {
-    if (serTx != null) {
-      if (serTx.getStrRef() != null && serTx.getStrRef().getStrCache() != null) {
-        CTStrData strData = serTx.getStrRef().getStrCache();
-        if (strData.getPtArray().length > 0) {
-          return strData.getPtArray(0).getV();
-        }
-      } else if (serTx.getV() != null) {
-        return serTx.getV();
-      }
+  /**
+   * Draw extracted chart data onto any Graphics2D, such as a PDF one, without rasterising it first
+   */
+  public static void drawChart(ChartData data, Graphics2D g2d, Rectangle2D area) {
+    try (ConversionTrace.Stage stage = ConversionTrace.stage(ConversionStage.CHART_RENDER)) {
+      draw(data, g2d, area);
     }
-    return "Series";
   }
 
-  /** Extract categories from CTAxDataSource */
-  private static String[] getCategories(CTAxDataSource cat) {
+  private static void draw(ChartData data, Graphics2D g2d, Rectangle2D area) {
+    JFreeChart jFreeChart = null;
     try {
-      if (cat != null && cat.getStrRef() != null && cat.getStrRef().getStrCache() != null) {
-        CTStrData strData = cat.getStrRef().getStrCache();
-        CTStrVal[] points = strData.getPtArray();
-
-        String[] categories = new String[points.length];
-        for (int i = 0; i < points.length; i++) {
-          categories[i] = points[i].getV();
-        }
-        return categories;
-      }
+      jFreeChart = createJFreeChart(data);
     } catch (Exception e) {
-      System.err.println("Error extracting categories: " + e.getMessage());
+      System.err.println("Error converting chart: " + e.getMessage());
     }
 
-    return new String[] {"Category 1", "Category 2", "Category 3"};
+    if (jFreeChart != null) {
+      jFreeChart.draw(g2d, area);
+    } else {
+      Graphics2D g = (Graphics2D) g2d.create();
+      try {
+        g.translate(area.getX(), area.getY());
+        drawFallbackChart(g, data.getTitle(), (int) area.getWidth(), (int) area.getHeight());
+      } finally {
+        g.dispose();
+      }
+    }
   }
 
-  /** Extract values from CTNumDataSource */
-  private static double[] getValues(CTNumDataSource val) {
-    try {
-      if (val != null && val.getNumRef() != null && val.getNumRef().getNumCache() != null) {
-        CTNumData numData = val.getNumRef().getNumCache();
-        CTNumVal[] points = numData.getPtArray();
-
-        double[] values = new double[points.length];
-        for (int i = 0; i < points.length; i++) {
-          try {
-            values[i] = Double.parseDouble(points[i].getV());
-          } catch (NumberFormatException e) {
-            values[i] = 0.0;
-          }
-        }
-        return values;
-      }
-    } catch (Exception e) {
-      System.err.println("Error extracting values: " + e.getMessage());
+  /** Create JFreeChart from chart data based on chart type */
+  private static JFreeChart createJFreeChart(ChartData data) {
+    if (data.getType() == null) {
+      return null;
     }
 
-    return new double[] {10.0, 20.0, 15.0};
+    switch (data.getType()) {
+      case BAR:
+        return ChartFactory.createBarChart(
+            data.getTitle(),
+            "Category",
+            "Value",
+            createCategoryDataset(data),
+            PlotOrientation.VERTICAL,
+            true,
+            true,
+            false);
+      case LINE:
+        return ChartFactory.createLineChart(
+            data.getTitle(),
+            "Category",
+            "Value",
+            createCategoryDataset(data),
+            PlotOrientation.VERTICAL,
+            true,
+            true,
+            false);
+      case PIE:
+        return ChartFactory.createPieChart(
+            data.getTitle(), createPieDataset(data), true, true, false);
+      case AREA:
+        return ChartFactory.createAreaChart(
+            data.getTitle(),
+            "Category",
+            "Value",
+            createCategoryDataset(data),
+            PlotOrientation.VERTICAL,
+            true,
+            true,
+            false);
+      default:
+        return null;
+    }
   }
 
-  /** Extract text from rich text format */
-  private static String extractTextFromRich(
-      org.openxmlformats.schemas.drawingml.x2006.main.CTTextBody rich) {
-    try {
-      if (rich.getPArray().length > 0) {
-        org.openxmlformats.schemas.drawingml.x2006.main.CTTextParagraph p = rich.getPArray(0);
-        if (p.getRArray().length > 0) {
-          return p.getRArray(0).getT();
-        }
-      }
-    } catch (Exception e) {
-      System.err.println("Error extracting rich text: " + e.getMessage());
-    }
-    return "";
+  private static ArrayCategoryDataset createCategoryDataset(ChartData data) {
+    return ArrayCategoryDataset.of(data.getSeries());
+  }
+
+  private static ArrayPieDataset createPieDataset(ChartData data) {
+    // Usually only one series in pie chart
+    return data.getSeries().isEmpty()
+        ? new ArrayPieDataset(new String[0], new double[0])
+        : ArrayPieDataset.of(data.getSeries().get(0));
   }
 
   /** Create fallback image when chart conversion fails */
-  private static BufferedImage createFallbackChartImage(XWPFChart chart, int width, int height) {
+  private static BufferedImage createFallbackChartImage(String chartTitle, int width, int height) {
     BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
     Graphics2D g2d = image.createGraphics();
 
@@ -284,6 +299,13 @@ public class XWPFChartToImageConverter {
     g2d.setRenderingHint(
         RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
 
+    drawFallbackChart(g2d, chartTitle, width, height);
+
+    g2d.dispose();
+    return image;
+  }
+
+  private static void drawFallbackChart(Graphics2D g2d, String chartTitle, int width, int height) {
     // Fill background
     g2d.setColor(Color.WHITE);
     g2d.fillRect(0, 0, width, height);
@@ -295,22 +317,7 @@ public class XWPFChartToImageConverter {
     // Draw title
     g2d.setColor(Color.BLACK);
     g2d.setFont(new Font("Arial", Font.BOLD, 18));
-    String title = "Chart from DOCX";
-
-    try {
-      // Try to get actual chart title
-      CTChart ctChart = chart.getCTChart();
-      if (ctChart.getTitle() != null && ctChart.getTitle().getTx() != null) {
-        if (ctChart.getTitle().getTx().getRich() != null) {
-          String extractedTitle = extractTextFromRich(ctChart.getTitle().getTx().getRich());
-          if (!extractedTitle.isEmpty()) {
-            title = extractedTitle;
-          }
-        }
-      }
-    } catch (Exception e) {
-      // Use default title
-    }
+    String title = chartTitle != null && !chartTitle.isEmpty() ? chartTitle : "Chart from DOCX";
 
     int titleWidth = g2d.getFontMetrics().stringWidth(title);
     g2d.drawString(title, (width - titleWidth) / 2, 50);
@@ -320,9 +327,6 @@ public class XWPFChartToImageConverter {
     g2d.drawString("Chart extracted from DOCX document", 30, height - 60);
     g2d.drawString("Chart rendering requires data extraction", 30, height - 40);
     g2d.drawString("Consider using JFreeChart for full rendering", 30, height - 20);
-
-    g2d.dispose();
-    return image;
   }
 
   /** Main method for testing */
@@ -334,18 +338,16 @@ public class XWPFChartToImageConverter {
       // Create output directory
       new File(outputDir).mkdirs();
 
-      try (FileInputStream fis = new FileInputStream(docxPath);
-          XWPFDocument document = new XWPFDocument(fis)) {
+      try (XWPFDocument document = DocumentLoader.openDocx(new File(docxPath))) {
 
         List<XWPFChart> charts = document.getCharts();
         System.out.println("Found " + charts.size() + " charts");
 
-        for (int i = 0; i < charts.size(); i++) {
-          XWPFChart chart = charts.get(i);
-          BufferedImage chartImage = convertChartToImage(chart, 800, 600);
+        List<BufferedImage> images = renderAll(charts, RenderOptions.create().size(800, 600));
 
+        for (int i = 0; i < images.size(); i++) {
           String fileName = outputDir + "/chart_" + (i + 1) + ".png";
-          ImageIO.write(chartImage, "PNG", new File(fileName));
+          ImageIO.write(images.get(i), "PNG", new File(fileName));
           System.out.println("Saved chart: " + fileName);
         }
       }
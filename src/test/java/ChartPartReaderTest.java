@@ -0,0 +1,92 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/** Where ChartPartReader takes a series' categories from */
+class ChartPartReaderTest {
+
+  @Test
+  void stringCacheCategories() throws Exception {
+    ChartData.Series series =
+        readSeries(
+            "<c:cat><c:strRef><c:f>Sheet1!$A$2:$A$3</c:f><c:strCache><c:ptCount val=\"2\"/>"
+                + "<c:pt idx=\"0\"><c:v>North</c:v></c:pt><c:pt idx=\"1\"><c:v>South</c:v></c:pt>"
+                + "</c:strCache></c:strRef></c:cat>");
+
+    assertArrayEquals(new String[] {"North", "South"}, series.getCategories());
+  }
+
+  @Test
+  void numericCacheCategoriesAreUsedAsText() throws Exception {
+    ChartData.Series series =
+        readSeries(
+            "<c:cat><c:numRef><c:f>Sheet1!$A$2:$A$3</c:f><c:numCache><c:formatCode>General"
+                + "</c:formatCode><c:ptCount val=\"2\"/><c:pt idx=\"0\"><c:v>2021</c:v></c:pt>"
+                + "<c:pt idx=\"1\"><c:v>2022</c:v></c:pt></c:numCache></c:numRef></c:cat>");
+
+    assertArrayEquals(new String[] {"2021", "2022"}, series.getCategories());
+  }
+
+  @Test
+  void literalCategories() throws Exception {
+    ChartData.Series series =
+        readSeries(
+            "<c:cat><c:strLit><c:ptCount val=\"2\"/><c:pt idx=\"0\"><c:v>Q1</c:v></c:pt>"
+                + "<c:pt idx=\"1\"><c:v>Q2</c:v></c:pt></c:strLit></c:cat>");
+
+    assertArrayEquals(new String[] {"Q1", "Q2"}, series.getCategories());
+  }
+
+  @Test
+  void missingPointsAreNumbered() throws Exception {
+    ChartData.Series series =
+        readSeries(
+            "<c:cat><c:strRef><c:strCache><c:ptCount val=\"3\"/><c:pt idx=\"0\"><c:v>A</c:v>"
+                + "</c:pt><c:pt idx=\"2\"><c:v>C</c:v></c:pt></c:strCache></c:strRef></c:cat>");
+
+    assertArrayEquals(new String[] {"A", "2", "C"}, series.getCategories());
+  }
+
+  @Test
+  void referenceWithoutCacheGetsPlaceholders() throws Exception {
+    ChartData.Series series =
+        readSeries("<c:cat><c:numRef><c:f>Sheet1!$A$2:$A$3</c:f></c:numRef></c:cat>");
+
+    assertArrayEquals(
+        new String[] {"Category 1", "Category 2", "Category 3"}, series.getCategories());
+  }
+
+  @Test
+  void seriesWithoutCategoriesGetsPlaceholders() throws Exception {
+    ChartData.Series series = readSeries("");
+
+    assertArrayEquals(
+        new String[] {"Category 1", "Category 2", "Category 3"}, series.getCategories());
+  }
+
+  /** Read a bar chart with one series whose category element is given */
+  private static ChartData.Series readSeries(String cat) throws Exception {
+    String xml =
+        "<c:chartSpace xmlns:c=\"http://schemas.openxmlformats.org/drawingml/2006/chart\">"
+            + "<c:chart><c:plotArea><c:barChart><c:ser><c:idx val=\"0\"/>"
+            + "<c:tx><c:v>Sales</c:v></c:tx>"
+            + cat
+            + "<c:val><c:numRef><c:numCache><c:ptCount val=\"2\"/>"
+            + "<c:pt idx=\"0\"><c:v>1.5</c:v></c:pt><c:pt idx=\"1\"><c:v>2</c:v></c:pt>"
+            + "</c:numCache></c:numRef></c:val>"
+            + "</c:ser></c:barChart></c:plotArea></c:chart></c:chartSpace>";
+
+    ChartData data =
+        ChartPartReader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(ChartData.Type.BAR, data.getType());
+    assertEquals(1, data.getSeries().size());
+    ChartData.Series series = data.getSeries().get(0);
+    assertEquals("Sales", series.getName());
+    assertArrayEquals(new double[] {1.5, 2.0}, series.getValues());
+    return series;
+  }
+}
@@ -0,0 +1,124 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConversionCacheTest {
+
+  @TempDir Path dir;
+
+  @Test
+  void concurrentRequestsForOneKeyRunTheProducerOnce() throws Exception {
+    ConversionCache cache = new ConversionCache(dir, 1024);
+    AtomicInteger produced = new AtomicInteger();
+    CountDownLatch producing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ConversionCache.Producer producer =
+        out -> {
+          produced.incrementAndGet();
+          producing.countDown();
+          release.await();
+          out.write(pdf("shared"));
+        };
+
+    int requests = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(requests);
+    try {
+      List<Future<byte[]>> results = new ArrayList<>();
+      results.add(executor.submit(() -> read(cache.getOrCompute("key", producer))));
+      producing.await();
+      for (int i = 1; i < requests; i++) {
+        results.add(executor.submit(() -> read(cache.getOrCompute("key", producer))));
+      }
+
+      long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+      while (cache.getCoalesced() < requests - 1) {
+        assertTrue(System.nanoTime() < deadline, "requests did not wait on the producer");
+        Thread.sleep(10);
+      }
+      release.countDown();
+
+      for (Future<byte[]> result : results) {
+        assertArrayEquals(pdf("shared"), result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, produced.get());
+    assertEquals(1, cache.getMisses());
+    assertEquals(requests - 1, cache.getCoalesced());
+    assertEquals(0, cache.getHits());
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedEntriesOverBudget() throws Exception {
+    ConversionCache cache = new ConversionCache(dir, 25);
+    put(cache, "aaa");
+    put(cache, "bbb");
+    // Reading aaa makes bbb the least recently used
+    assertArrayEquals(pdf("aaa"), read(cache.getOrCompute("aaa", out -> fail())));
+    put(cache, "ccc");
+
+    assertFalse(Files.exists(dir.resolve("bbb.pdf")));
+    assertTrue(Files.exists(dir.resolve("aaa.pdf")));
+    assertTrue(Files.exists(dir.resolve("ccc.pdf")));
+    assertEquals(1, cache.getEvictions());
+    assertEquals(1, cache.getHits());
+    assertEquals(3, cache.getMisses());
+    assertEquals(2, cache.getEntryCount());
+    assertEquals(2 * pdf("aaa").length, cache.getTotalBytes());
+  }
+
+  @Test
+  void loadIndexDropsTempFilesAndEvictsOldestEntries() throws Exception {
+    Files.write(dir.resolve("old.pdf"), pdf("old"));
+    Files.setLastModifiedTime(dir.resolve("old.pdf"), FileTime.fromMillis(1_000_000));
+    Files.write(dir.resolve("new.pdf"), pdf("new"));
+    Files.writeString(dir.resolve("abc123.tmp"), "partial");
+
+    ConversionCache cache = new ConversionCache(dir, 15);
+
+    assertFalse(Files.exists(dir.resolve("abc123.tmp")));
+    assertFalse(Files.exists(dir.resolve("old.pdf")));
+    assertEquals(1, cache.getEntryCount());
+    assertEquals(pdf("new").length, cache.getTotalBytes());
+    assertEquals(1, cache.getEvictions());
+    assertArrayEquals(pdf("new"), read(cache.getOrCompute("new", out -> fail())));
+    assertEquals(1, cache.getHits());
+  }
+
+  /** Ten bytes standing in for the PDF of a key */
+  private static byte[] pdf(String key) {
+    return String.format("%-10s", key).substring(0, 10).getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static void put(ConversionCache cache, String key) throws Exception {
+    read(cache.getOrCompute(key, out -> out.write(pdf(key))));
+  }
+
+  private static byte[] read(InputStream in) throws Exception {
+    try (in) {
+      return in.readAllBytes();
+    }
+  }
+
+  private static void fail() {
+    throw new AssertionError("producer should not run");
+  }
+}
@@ -0,0 +1,211 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+/** The container pool driven through scripts/fake-docker, which keeps its containers as files */
+@DisabledOnOs(OS.WINDOWS)
+class DockerLibreOfficePoolTest {
+
+  private static final String FAKE_DOCKER =
+      Paths.get("scripts/fake-docker").toAbsolutePath().toString();
+  private static final String FAKE_SOFFICE =
+      Paths.get("scripts/fake-soffice").toAbsolutePath().toString();
+
+  // Where fake-docker keeps its containers when FAKE_DOCKER_STATE is not set
+  private static final Path STATE =
+      Paths.get(System.getenv().getOrDefault("TMPDIR", "/tmp"), "fake-docker-state");
+
+  private static final String PREFIX = "doc2pdf-lo-" + ProcessHandle.current().pid() + "-";
+
+  @TempDir Path dir;
+
+  private LibreOfficeProfileManager profiles;
+
+  @BeforeEach
+  void seedProfiles() throws Exception {
+    profiles =
+        new LibreOfficeProfileManager(
+            dir.resolve("profiles"),
+            profile ->
+                List.of(
+                    FAKE_SOFFICE,
+                    LibreOfficeProfileManager.userInstallationArg(profile),
+                    "--terminate_after_init"));
+  }
+
+  @Test
+  void convertsEveryQueuedJobAndRemovesContainersOnClose() throws Exception {
+    Path out = dir.resolve("out");
+    try (DockerLibreOfficePool pool =
+        new DockerLibreOfficePool(loggingDocker().toString(), "image", 2, profiles)) {
+      assertEquals(2, ourContainers().length);
+
+      List<CompletableFuture<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        results.add(pool.submit(input("doc-" + i + ".docx").toString(), out.toString()));
+      }
+      for (CompletableFuture<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    }
+    for (int i = 0; i < 4; i++) {
+      assertTrue(Files.exists(out.resolve("doc-" + i + ".pdf")));
+    }
+    assertArrayEquals(new String[0], ourContainers());
+    assertFalse(Files.exists(profiles.getRoot()));
+
+    List<String> commands = Files.readAllLines(dir.resolve("docker.log"));
+    String run =
+        commands.stream()
+            .filter(line -> line.startsWith("docker run -d --name " + PREFIX + "0 "))
+            .findFirst()
+            .orElseThrow();
+    Path workDir = Paths.get(run.replaceFirst(".* -v (\\S+):/work .*", "$1"));
+    assertTrue(run.contains(" -v " + profiles.getRoot().resolve("profile-1") + ":/profile "));
+    assertTrue(run.contains(" image -env:UserInstallation=file:///profile "));
+    assertTrue(workDir.getFileName().toString().startsWith("lo-docker-work"), run);
+    assertFalse(Files.exists(workDir));
+
+    List<String> execs = commands.stream().filter(line -> line.startsWith("docker exec ")).toList();
+    assertEquals(4, execs.size());
+    for (String exec : execs) {
+      assertTrue(
+          exec.matches(
+              "docker exec "
+                  + PREFIX
+                  + "[01] libreoffice -env:UserInstallation=file:///profile --headless"
+                  + " --convert-to pdf --outdir /work/out/\\S+ /work/in/\\S+/doc-[0-3]\\.docx"),
+          exec);
+    }
+  }
+
+  @Test
+  void failingInputDoesNotStopThePool() throws Exception {
+    String out = dir.resolve("out").toString();
+    try (DockerLibreOfficePool pool =
+        new DockerLibreOfficePool(FAKE_DOCKER, "image", 1, profiles)) {
+      CompletableFuture<Boolean> missing = pool.submit(dir.resolve("missing.docx").toString(), out);
+      ExecutionException e = assertThrows(ExecutionException.class, missing::get);
+      assertInstanceOf(IllegalArgumentException.class, e.getCause());
+
+      assertTrue(pool.submit(input("next.docx").toString(), out).get());
+    }
+  }
+
+  @Test
+  void timedOutJobIsKilledAndItsContainerReplaced() throws Exception {
+    String out = dir.resolve("out").toString();
+    Path slow = input("slow.docx");
+    try (DockerLibreOfficePool pool =
+        new DockerLibreOfficePool(slowDocker().toString(), "image", 1, profiles)) {
+      CompletableFuture<Boolean> result = pool.submit(slow.toString(), out, Duration.ofSeconds(1));
+      ExecutionException e = assertThrows(ExecutionException.class, result::get);
+      assertInstanceOf(TimeoutException.class, e.getCause());
+
+      assertFalse(slowConversionRunning());
+      assertTrue(Files.readString(quarantineLog()).contains(slow.toString()));
+      assertTrue(pool.submit(input("next.docx").toString(), out).get());
+    }
+    assertArrayEquals(new String[0], ourContainers());
+  }
+
+  @Test
+  void failedStartRemovesStartedContainers() throws Exception {
+    Path docker = dir.resolve("failing-docker");
+    Files.writeString(
+        docker,
+        "#!/bin/sh\n"
+            + "case \"$*\" in *\"--name "
+            + PREFIX
+            + "1 \"*) echo 'no space left' >&2; exit 1 ;; esac\n"
+            + "exec '"
+            + FAKE_DOCKER
+            + "' \"$@\"\n");
+    docker.toFile().setExecutable(true);
+
+    assertThrows(
+        IOException.class,
+        () -> new DockerLibreOfficePool(docker.toString(), "image", 3, profiles));
+    assertArrayEquals(new String[0], ourContainers());
+  }
+
+  private Path input(String name) throws Exception {
+    Path input = dir.resolve("in").resolve(name);
+    Files.createDirectories(input.getParent());
+    return Files.writeString(input, "not really a document");
+  }
+
+  /** fake-docker that logs its commands to docker.log in the test directory */
+  private Path loggingDocker() throws Exception {
+    Path script = dir.resolve("logging-docker");
+    Files.writeString(
+        script,
+        "#!/bin/sh\n"
+            + "FAKE_DOCKER_LOG='"
+            + dir.resolve("docker.log")
+            + "' exec '"
+            + FAKE_DOCKER
+            + "' \"$@\"\n");
+    script.toFile().setExecutable(true);
+    return script;
+  }
+
+  /** fake-docker whose office takes a minute to convert inputs named slow */
+  private Path slowDocker() throws Exception {
+    Path script = dir.resolve("slow-docker");
+    Files.writeString(
+        script,
+        "#!/bin/sh\n"
+            + "case \"$*\" in *slow.docx*) export FAKE_SOFFICE_DELAY=60 ;; esac\n"
+            + "exec '"
+            + FAKE_DOCKER
+            + "' \"$@\"\n");
+    script.toFile().setExecutable(true);
+    return script;
+  }
+
+  /** Containers of this JVM that fake-docker still has */
+  private static String[] ourContainers() throws IOException {
+    if (!Files.isDirectory(STATE)) {
+      return new String[0];
+    }
+    try (Stream<Path> files = Files.list(STATE)) {
+      return files
+          .map(file -> file.getFileName().toString())
+          .filter(name -> name.startsWith(PREFIX))
+          .toArray(String[]::new);
+    }
+  }
+
+  private static boolean slowConversionRunning() {
+    return ProcessHandle.current()
+        .descendants()
+        .anyMatch(
+            process ->
+                process.info().commandLine().map(line -> line.contains("sleep 60")).orElse(false));
+  }
+
+  private static Path quarantineLog() {
+    return ConversionQuarantine.shared().getDirectory().resolve("quarantine.log");
+  }
+}
@@ -0,0 +1,200 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+/** The worker pool driven through scripts/fake-soffice */
+@DisabledOnOs(OS.WINDOWS)
+class LibreOfficeWorkerPoolTest {
+
+  private static final String FAKE_SOFFICE =
+      Paths.get("scripts/fake-soffice").toAbsolutePath().toString();
+
+  @TempDir Path dir;
+
+  @Test
+  void convertsEveryQueuedJob() throws Exception {
+    Path out = dir.resolve("out");
+    Path profiles;
+    try (LibreOfficeWorkerPool pool = new LibreOfficeWorkerPool(FAKE_SOFFICE, 2, 0, 0)) {
+      profiles = pool.getProfiles().getRoot();
+      assertTrue(Files.isDirectory(profiles.resolve("template")));
+      List<CompletableFuture<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 6; i++) {
+        results.add(pool.submit(input("doc-" + i + ".docx").toString(), out.toString()));
+      }
+
+      for (CompletableFuture<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    }
+    for (int i = 0; i < 6; i++) {
+      assertTrue(Files.exists(out.resolve("doc-" + i + ".pdf")));
+    }
+    assertFalse(Files.exists(profiles));
+  }
+
+  @Test
+  void recyclesWorkerAfterMaxJobs() throws Exception {
+    LibreOfficeProfileManager profiles = LibreOfficeProfileManager.forSoffice(FAKE_SOFFICE);
+    LibreOfficeWorker worker = new LibreOfficeWorker(0, FAKE_SOFFICE, profiles.acquire(), 2, 0);
+    worker.start();
+    try {
+      String out = dir.resolve("out").toString();
+      assertTrue(worker.convert(input("a.docx").toString(), out));
+      assertEquals(1, worker.getGeneration());
+
+      assertTrue(worker.convert(input("b.docx").toString(), out));
+      assertEquals(2, worker.getGeneration());
+      assertEquals(0, worker.getJobs());
+
+      assertTrue(worker.convert(input("c.docx").toString(), out));
+      assertEquals(2, worker.getGeneration());
+      assertEquals(1, worker.getJobs());
+    } finally {
+      worker.stop();
+      profiles.close();
+    }
+  }
+
+  @Test
+  void failingInputDoesNotStopThePool() throws Exception {
+    String out = dir.resolve("out").toString();
+    try (LibreOfficeWorkerPool pool = new LibreOfficeWorkerPool(FAKE_SOFFICE, 1, 0, 0)) {
+      CompletableFuture<Boolean> missing = pool.submit(dir.resolve("missing.docx").toString(), out);
+      ExecutionException e = assertThrows(ExecutionException.class, missing::get);
+      assertInstanceOf(IllegalArgumentException.class, e.getCause());
+
+      assertTrue(pool.submit(input("next.docx").toString(), out).get());
+    }
+  }
+
+  @Test
+  void officeFailureCompletesWithFalse() throws Exception {
+    LibreOfficeProfileManager profiles = LibreOfficeProfileManager.forSoffice(FAKE_SOFFICE);
+    LibreOfficeWorker worker = new LibreOfficeWorker(0, FAKE_SOFFICE, profiles.acquire(), 0, 0);
+    worker.start();
+    try {
+      String out = dir.resolve("out").toString();
+      assertFalse(worker.convert(dir.resolve("missing.docx").toString(), out));
+      assertTrue(worker.convert(input("next.docx").toString(), out));
+    } finally {
+      worker.stop();
+      profiles.close();
+    }
+  }
+
+  @Test
+  void timedOutJobIsKilledAndQuarantined() throws Exception {
+    String out = dir.resolve("out").toString();
+    Path slow = input("slow.docx");
+    try (LibreOfficeWorkerPool pool =
+        new LibreOfficeWorkerPool(slowSoffice().toString(), 1, 0, 0)) {
+      CompletableFuture<Boolean> result =
+          pool.submitBatch(List.of(slow.toString()), out, Duration.ofSeconds(1));
+      ExecutionException e = assertThrows(ExecutionException.class, result::get);
+      assertInstanceOf(TimeoutException.class, e.getCause());
+
+      assertFalse(slowConversionRunning());
+      assertTrue(Files.readString(quarantineLog()).contains(slow.toString()));
+      // The worker was restarted and takes the next job
+      assertTrue(pool.submit(input("next.docx").toString(), out).get());
+    }
+  }
+
+  @Test
+  void timedOutBatchQuarantinesOnlyTheFileThatHangsAlone() throws Exception {
+    Path out = dir.resolve("out");
+    Path first = input("first.docx");
+    Path slow = input("slow.docx");
+    Path last = input("last.docx");
+    try (LibreOfficeWorkerPool pool =
+        new LibreOfficeWorkerPool(slowSoffice().toString(), 1, 0, 0)) {
+      CompletableFuture<Boolean> result =
+          pool.submitBatch(
+              List.of(first.toString(), slow.toString(), last.toString()),
+              out.toString(),
+              Duration.ofSeconds(3));
+      ExecutionException e = assertThrows(ExecutionException.class, result::get);
+      assertInstanceOf(TimeoutException.class, e.getCause());
+      assertTrue(e.getCause().getMessage().contains(slow.toString()));
+    }
+    assertTrue(Files.exists(out.resolve("first.pdf")));
+    assertTrue(Files.exists(out.resolve("last.pdf")));
+    String log = Files.readString(quarantineLog());
+    assertTrue(log.contains(slow.toString()));
+    assertFalse(log.contains(first.toString()));
+    assertFalse(log.contains(last.toString()));
+  }
+
+  @Test
+  void cancellingRunningJobKillsIt() throws Exception {
+    String out = dir.resolve("out").toString();
+    try (LibreOfficeWorkerPool pool =
+        new LibreOfficeWorkerPool(slowSoffice().toString(), 1, 0, 0)) {
+      CompletableFuture<Boolean> result = pool.submit(input("slow.docx").toString(), out);
+      waitForSlowConversion();
+
+      result.cancel(true);
+      assertThrows(CancellationException.class, result::get);
+      assertTrue(pool.submit(input("next.docx").toString(), out).get());
+      assertFalse(slowConversionRunning());
+    }
+  }
+
+  private Path input(String name) throws Exception {
+    Path input = dir.resolve("in").resolve(name);
+    Files.createDirectories(input.getParent());
+    return Files.writeString(input, "not really a document");
+  }
+
+  /** fake-soffice that takes a minute to convert inputs named slow */
+  private Path slowSoffice() throws Exception {
+    Path script = dir.resolve("slow-soffice");
+    Files.writeString(
+        script,
+        "#!/bin/sh\n"
+            + "case \"$*\" in *slow.docx*) export FAKE_SOFFICE_DELAY=60 ;; esac\n"
+            + "exec '"
+            + FAKE_SOFFICE
+            + "' \"$@\"\n");
+    script.toFile().setExecutable(true);
+    return script;
+  }
+
+  private static boolean slowConversionRunning() {
+    return ProcessHandle.current()
+        .descendants()
+        .anyMatch(
+            process ->
+                process.info().commandLine().map(line -> line.contains("sleep 60")).orElse(false));
+  }
+
+  private static void waitForSlowConversion() throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (!slowConversionRunning()) {
+      assertTrue(System.nanoTime() < deadline, "slow conversion did not start");
+      Thread.sleep(50);
+    }
+  }
+
+  private static Path quarantineLog() {
+    return ConversionQuarantine.shared().getDirectory().resolve("quarantine.log");
+  }
+}